@@ -0,0 +1,134 @@
+package io.cli.benchmarks;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files in CSV format and lists every score that got worse by more than a threshold.
+ * <p>
+ * Throughput scores are better when higher, times and allocation per operation when lower. The other gc figures
+ * depend on how fast the benchmark ran and are not compared, nor are benchmarks found in only one of the files.
+ * <pre>
+ * java -cp benchmarks.jar io.cli.benchmarks.BaselineComparator baseline.csv jmh-result.csv [threshold%]
+ * </pre>
+ */
+public class BaselineComparator {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BaselineComparator <baseline.csv> <current.csv> [threshold%]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        int regressions = compare(Path.of(args[0]), Path.of(args[1]), threshold, System.out);
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    // Prints the comparison and returns the number of regressions
+    public static int compare(Path baseline, Path current, double threshold, PrintStream out) throws IOException {
+        Map<String, Score> baselineScores = read(baseline);
+        Map<String, Score> currentScores = read(current);
+
+        int regressions = 0;
+        out.printf("%-90s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, Score> entry : currentScores.entrySet()) {
+            Score before = baselineScores.get(entry.getKey());
+            if (before == null || before.value == 0 || !entry.getValue().isComparable()) {
+                continue;
+            }
+            Score after = entry.getValue();
+            double change = 100 * (after.value - before.value) / before.value;
+            double worsening = after.higherIsBetter() ? -change : change;
+            boolean regression = worsening > threshold;
+            if (regression) {
+                regressions++;
+            }
+            out.printf("%-90s %14.3f %14.3f %+8.1f%% %s%s%n", entry.getKey(), before.value, after.value, change,
+                    after.unit, regression ? "  REGRESSION" : "");
+        }
+        out.printf("%d regression(s) above %.1f%%%n", regressions, threshold);
+        return regressions;
+    }
+
+    // Scores by benchmark name and parameters
+    private static Map<String, Score> read(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        Map<String, Score> scores = new LinkedHashMap<>();
+        if (lines.isEmpty()) {
+            return scores;
+        }
+
+        List<String> header = split(lines.getFirst());
+        int name = header.indexOf("Benchmark");
+        int mode = header.indexOf("Mode");
+        int score = header.indexOf("Score");
+        int unit = header.indexOf("Unit");
+        for (String line : lines.subList(1, lines.size())) {
+            List<String> fields = split(line);
+            if (fields.size() != header.size()) {
+                continue;
+            }
+            StringBuilder key = new StringBuilder(fields.get(name));
+            for (int i = unit + 1; i < header.size(); i++) {
+                if (!fields.get(i).isEmpty()) {
+                    key.append(' ').append(header.get(i).replace("Param: ", "")).append('=').append(fields.get(i));
+                }
+            }
+            try {
+                double value = Double.parseDouble(fields.get(score));
+                scores.put(key.toString(), new Score(fields.get(name), fields.get(mode), value, fields.get(unit)));
+            } catch (NumberFormatException e) {
+                // A failed or empty measurement has nothing to compare
+            }
+        }
+        return scores;
+    }
+
+    // Splits a CSV line, quoted fields may contain commas and doubled quotes
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private record Score(String name, String mode, double value, String unit) {
+        boolean isComparable() {
+            return !name.contains(":gc.") || name.endsWith(":gc.alloc.rate.norm");
+        }
+
+        boolean higherIsBetter() {
+            // Allocation is a cost whatever the mode, the other secondary results follow their benchmark
+            if (name.endsWith(":gc.alloc.rate.norm")) {
+                return false;
+            }
+            return mode.equals("thrpt");
+        }
+    }
+}
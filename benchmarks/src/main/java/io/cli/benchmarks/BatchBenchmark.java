@@ -0,0 +1,100 @@
+package io.cli.benchmarks;
+
+import io.cli.Main;
+import io.cli.Shell;
+import io.cli.context.Context;
+import io.cli.metrics.Metrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lines per second of a script of builtins, the score is per line.
+ * <ul>
+ *     <li>{@code script}: read from a file, like {@code cli script.sh}</li>
+ *     <li>{@code command}: read from a string, like {@code cli -c}</li>
+ *     <li>{@code interactive}: the same lines through the prompting loop, for comparison</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark {
+    private static final int LINES = 10_000;
+    private static final List<String> BLOCK = List.of(
+            "x=$1",
+            "echo line $x \"$#\"",
+            "# a comment",
+            "y=\"$x-$@\"",
+            "echo $y | cat"
+    );
+
+    @Param({"script", "command", "interactive"})
+    public String mode;
+
+    private String script;
+    private Path scriptFile;
+    private Shell shell;
+    private PrintStream stdout;
+
+    @Setup
+    public void setUp() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            builder.append(BLOCK.get(i % BLOCK.size())).append('\n');
+        }
+        script = builder.toString();
+        scriptFile = Files.createTempFile("batch", ".sh");
+        Files.writeString(scriptFile, script);
+
+        shell = Main.newShell(new Context(), new Metrics(), false);
+        shell.setPositionalParameters("batch", List.of("a", "b"));
+        // Builtins write to System.out, the benchmark only measures the shell
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.setOut(stdout);
+        Files.deleteIfExists(scriptFile);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public int run() throws IOException {
+        return switch (mode) {
+            case "script" -> {
+                try (InputStream script = Files.newInputStream(scriptFile)) {
+                    yield shell.runBatch(Shell.newBatchReader(script));
+                }
+            }
+            case "command" -> shell.runBatch(new StringReader(script));
+            case "interactive" -> shell.runInteractive(new StringReader(script));
+            default -> throw new IllegalArgumentException(mode);
+        };
+    }
+}
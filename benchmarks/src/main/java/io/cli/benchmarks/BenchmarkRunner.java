@@ -0,0 +1,47 @@
+package io.cli.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Path;
+
+/**
+ * Runs the benchmarks like the JMH launcher, with two defaults: the gc profiler reports the allocation rate of
+ * every benchmark, and the results are saved to {@code jmh-result.csv}.
+ * <p>
+ * With {@code -Dbaseline=<csv>} the results are then compared with an earlier run, see {@link BaselineComparator};
+ * {@code -Dthreshold=<percent>} sets the tolerated change, 10% by default.
+ */
+public class BenchmarkRunner {
+    private static final String DEFAULT_RESULT = "jmh-result.csv";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (commandLine.getProfilers().isEmpty()) {
+            options.addProfiler(GCProfiler.class);
+        }
+        String result = commandLine.getResult().orElse(DEFAULT_RESULT);
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.CSV).result(result);
+        }
+        new Runner(options.build()).run();
+
+        String baseline = System.getProperty("baseline");
+        if (baseline != null) {
+            double threshold = Double.parseDouble(System.getProperty("threshold", "10"));
+            int regressions = BaselineComparator.compare(Path.of(baseline), Path.of(result), threshold, System.out);
+            System.exit(regressions == 0 ? 0 : 1);
+        }
+    }
+}
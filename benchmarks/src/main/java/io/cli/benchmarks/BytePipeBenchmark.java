@@ -0,0 +1,86 @@
+package io.cli.benchmarks;
+
+import io.cli.executor.pipe.BytePipe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link BytePipe} throughput with {@link PipedInputStream}/{@link PipedOutputStream},
+ * see {@link Transferred} for the MB/s score.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BytePipeBenchmark {
+    private static final long SIZE = 64L << 20;
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    @Param({"BytePipe", "PipedInputStream"})
+    public String pipe;
+
+    @Param({"virtual", "platform"})
+    public String threads;
+
+    @Benchmark
+    public long transfer(Transferred transferred) throws Exception {
+        InputStream input;
+        OutputStream output;
+        if (pipe.equals("BytePipe")) {
+            BytePipe bytePipe = new BytePipe();
+            input = bytePipe.inputStream();
+            output = bytePipe.outputStream();
+        } else {
+            PipedOutputStream pipedOutput = new PipedOutputStream();
+            input = new PipedInputStream(pipedOutput, BytePipe.DEFAULT_CAPACITY);
+            output = pipedOutput;
+        }
+
+        // Both ends run on the same kind of thread, as pipeline stages do
+        Thread.Builder builder = threads.equals("virtual") ? Thread.ofVirtual() : Thread.ofPlatform();
+        long[] received = new long[1];
+        Thread reader = builder.start(() -> {
+            byte[] buffer = new byte[CHUNK_SIZE];
+            try (input) {
+                int bytesRead;
+                while ((bytesRead = input.read(buffer)) != -1) {
+                    received[0] += bytesRead;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread writer = builder.start(() -> {
+            byte[] chunk = new byte[CHUNK_SIZE];
+            try (output) {
+                for (long written = 0; written < SIZE; written += CHUNK_SIZE) {
+                    output.write(chunk);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        writer.join();
+        reader.join();
+
+        transferred.add(received[0]);
+        return received[0];
+    }
+}
@@ -0,0 +1,69 @@
+package io.cli.benchmarks;
+
+import io.cli.command.Command;
+import io.cli.command.CommandRegistry;
+import io.cli.command.impl.assign.AssignCommandFactory;
+import io.cli.command.impl.cat.CatCommandFactory;
+import io.cli.command.impl.echo.EchoCommandFactory;
+import io.cli.command.impl.exit.ExitCommandFactory;
+import io.cli.command.impl.external.ExternalCommandFactory;
+import io.cli.command.impl.external.PathCache;
+import io.cli.command.impl.external.StreamPump;
+import io.cli.command.impl.pwd.PwdCommandFactory;
+import io.cli.context.Context;
+import io.cli.parser.token.Token;
+import io.cli.parser.token.TokenType;
+import io.cli.session.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of finding the command for a stage, without running it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+    @Param({"echo a b", "x=1", "ls -l"})
+    public String stage;
+
+    private CommandRegistry commandRegistry;
+    private List<Token> args;
+
+    @Setup
+    public void setUp() {
+        Context context = new Context();
+        Session session = new Session(context);
+        commandRegistry = new CommandRegistry(
+                new AssignCommandFactory(context),
+                new ExternalCommandFactory(context, new StreamPump(), new PathCache(context))
+        );
+        commandRegistry.register("exit", new ExitCommandFactory(session));
+        commandRegistry.register("echo", new EchoCommandFactory(session));
+        commandRegistry.register("pwd", new PwdCommandFactory(session));
+        commandRegistry.register("cat", new CatCommandFactory(session));
+
+        args = Arrays.stream(stage.split(" ")).map(arg -> new Token(TokenType.COMMAND, arg)).toList();
+    }
+
+    @Benchmark
+    public Command newCommand() {
+        return commandRegistry.newCommand(args);
+    }
+}
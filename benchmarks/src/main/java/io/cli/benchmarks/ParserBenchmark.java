@@ -0,0 +1,122 @@
+package io.cli.benchmarks;
+
+import io.cli.context.Context;
+import io.cli.parser.ParserOrchestrator;
+import io.cli.parser.innerparser.Lexer;
+import io.cli.parser.innerparser.PipeParser;
+import io.cli.parser.innerparser.QuoteParser;
+import io.cli.parser.innerparser.Substitutor;
+import io.cli.parser.innerparser.TokenBuffer;
+import io.cli.parser.token.Token;
+import io.cli.plan.CompiledPlan;
+import io.cli.plan.PlanCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a line into tokens: stage by stage with the three passes the lexer replaced, which stay as the
+ * baseline, by the lexer alone, through the parser and through the plan cache.
+ */
+@SuppressWarnings("deprecation")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    private static final Map<String, String> LINES = Map.of(
+            "short", "echo $USER",
+            "long", ("cat file-$N.txt | grep -v $PATTERN | sort -r | head -n $COUNT | wc -l | ").repeat(20) + "cat",
+            "quotes", ("echo \"hello $USER\" 'it''s $HOME' \"a | b\" x=\"$N\" ").repeat(10)
+    );
+
+    @Param({"short", "long", "quotes"})
+    public String line;
+
+    private String input;
+    private Context context;
+    private QuoteParser quoteParser;
+    private PipeParser pipeParser;
+    private Substitutor substitutor;
+    private Lexer lexer;
+    private TokenBuffer tokenBuffer;
+    private ParserOrchestrator parserOrchestrator;
+    private PlanCache planCache;
+    private List<Token> quoted;
+
+    @Setup
+    public void setUp() {
+        input = LINES.get(line);
+        context = new Context();
+        context.setVar("USER", "user");
+        context.setVar("N", "42");
+        context.setVar("PATTERN", "error");
+        context.setVar("COUNT", "10");
+
+        quoteParser = new QuoteParser();
+        pipeParser = new PipeParser();
+        substitutor = new Substitutor();
+        lexer = new Lexer();
+        tokenBuffer = new TokenBuffer();
+        parserOrchestrator = new ParserOrchestrator(lexer, context);
+        planCache = new PlanCache(parserOrchestrator, context);
+        quoted = quoteParser.parseQuote(input);
+    }
+
+    @Benchmark
+    public List<Token> parseQuote() {
+        return quoteParser.parseQuote(input);
+    }
+
+    @Benchmark
+    public List<Token> substitute() {
+        return substitutor.substitute(quoted, context);
+    }
+
+    @Benchmark
+    public List<List<Token>> parsePipe() {
+        return pipeParser.parsePipe(quoted);
+    }
+
+    // All three passes over one line, what lex replaced
+    @Benchmark
+    public List<List<Token>> threePasses() {
+        return pipeParser.parsePipe(substitutor.substitute(quoteParser.parseQuote(input), context));
+    }
+
+    @Benchmark
+    public List<List<Token>> lex() {
+        return lexer.lex(input, context);
+    }
+
+    // Offsets into the line in a buffer reused for every line, no token objects
+    @Benchmark
+    public TokenBuffer lexIntoBuffer() {
+        return lexer.lex(input, context, tokenBuffer);
+    }
+
+    @Benchmark
+    public List<List<Token>> parse() {
+        return parserOrchestrator.parse(input);
+    }
+
+    // A line typed again is not parsed again
+    @Benchmark
+    public CompiledPlan planCacheHit() {
+        return planCache.get(input);
+    }
+}
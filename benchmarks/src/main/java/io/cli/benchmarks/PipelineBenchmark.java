@@ -0,0 +1,179 @@
+package io.cli.benchmarks;
+
+import io.cli.command.BufferCommand;
+import io.cli.command.BufferSink;
+import io.cli.command.BufferSource;
+import io.cli.command.Command;
+import io.cli.command.impl.cat.CatCommand;
+import io.cli.command.impl.external.ExternalCommand;
+import io.cli.command.impl.external.StreamPump;
+import io.cli.context.Context;
+import io.cli.executor.Executor;
+import io.cli.executor.Stage;
+import io.cli.parser.token.Token;
+import io.cli.parser.token.TokenType;
+import io.cli.session.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a two-stage pipeline through {@link Executor}, see {@link Transferred} for the MB/s score.
+ * <ul>
+ *     <li>{@code builtin-builtin}: a stream builtin into {@code cat}, through a byte pipe</li>
+ *     <li>{@code buffer-buffer}: a buffer builtin into {@code cat}, buffers are passed without copying</li>
+ *     <li>{@code builtin-external}: a stream builtin into {@code /bin/cat}, through a pump</li>
+ *     <li>{@code external-external}: {@code head -c} into {@code /bin/cat}, through an OS pipe</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+    private static final long SIZE = 64L << 20;
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    @Param({"builtin-builtin", "buffer-buffer", "builtin-external", "external-external"})
+    public String stages;
+
+    private Context context;
+    private Session session;
+    private StreamPump streamPump;
+    private Executor executor;
+
+    @Setup
+    public void setUp() {
+        context = new Context();
+        session = new Session(context);
+        streamPump = new StreamPump();
+        executor = new Executor(context);
+    }
+
+    @Benchmark
+    public int pipeline(Transferred transferred) {
+        CountingOutputStream output = new CountingOutputStream();
+        int exitCode = executor.execute(newPipeline(), InputStream.nullInputStream(), output);
+        transferred.add(output.count);
+        return exitCode;
+    }
+
+    private List<Stage> newPipeline() {
+        return switch (stages) {
+            case "builtin-builtin" -> List.of(new Stage(new ZeroCommand()), new Stage(newCat()));
+            case "buffer-buffer" -> List.of(new Stage(new ZeroBufferCommand()), new Stage(newCat()));
+            case "builtin-external" -> List.of(new Stage(new ZeroCommand()), new Stage(external("cat")));
+            case "external-external" -> List.of(
+                    new Stage(external("head", "-c", Long.toString(SIZE), "/dev/zero")),
+                    new Stage(external("cat"))
+            );
+            default -> throw new IllegalArgumentException(stages);
+        };
+    }
+
+    private Command newCat() {
+        return new CatCommand(session, List.of(new Token(TokenType.COMMAND, "cat")));
+    }
+
+    private ExternalCommand external(String... args) {
+        return new ExternalCommand(context, streamPump, List.of(args));
+    }
+
+    // Writes SIZE zero bytes to its output stream
+    private static class ZeroCommand implements Command {
+        private OutputStream outputStream;
+
+        @Override
+        public int execute() {
+            byte[] chunk = new byte[CHUNK_SIZE];
+            try {
+                for (long written = 0; written < SIZE; written += chunk.length) {
+                    outputStream.write(chunk, 0, (int) Math.min(chunk.length, SIZE - written));
+                }
+                outputStream.flush();
+                return 0;
+            } catch (IOException e) {
+                return 1;
+            }
+        }
+
+        @Override
+        public void setInputStream(InputStream newInputStream) {
+        }
+
+        @Override
+        public void setOutputStream(OutputStream newOutputStream) {
+            outputStream = newOutputStream;
+        }
+    }
+
+    // Puts SIZE zero bytes into its sink, in buffers of the sink
+    private static class ZeroBufferCommand implements BufferCommand {
+        private BufferSink sink;
+
+        @Override
+        public int execute() {
+            try {
+                for (long written = 0; written < SIZE; ) {
+                    ByteBuffer buffer = sink.allocate();
+                    int count = (int) Math.min(buffer.remaining(), SIZE - written);
+                    buffer.position(count);
+                    sink.put(buffer.flip());
+                    written += count;
+                }
+                sink.flush();
+                return 0;
+            } catch (IOException e) {
+                return 1;
+            }
+        }
+
+        @Override
+        public void setBufferSource(BufferSource source) {
+        }
+
+        @Override
+        public void setBufferSink(BufferSink newSink) {
+            sink = newSink;
+        }
+
+        @Override
+        public void setInputStream(InputStream newInputStream) {
+        }
+
+        @Override
+        public void setOutputStream(OutputStream newOutputStream) {
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            count += length;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package io.cli.benchmarks;
+
+import io.cli.command.impl.external.ExternalCommand;
+import io.cli.command.impl.external.PathCache;
+import io.cli.command.impl.external.StreamPump;
+import io.cli.context.Context;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of running an external command that does nothing, from lookup to exit status.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpawnBenchmark {
+    private Context context;
+    private StreamPump streamPump;
+    private PathCache pathCache;
+
+    @Setup
+    public void setUp() {
+        context = new Context();
+        streamPump = new StreamPump();
+        pathCache = new PathCache(context);
+    }
+
+    @Benchmark
+    public int spawnTrue() {
+        ExternalCommand command = new ExternalCommand(context, streamPump, pathCache, List.of("true"));
+        command.setInputStream(InputStream.nullInputStream());
+        command.setOutputStream(OutputStream.nullOutputStream());
+        return command.execute();
+    }
+}
@@ -0,0 +1,19 @@
+package io.cli.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Megabytes moved by a throughput benchmark. JMH reports the counter per second, so its score reads as MB/s
+ * although the unit is shown as ops/s.
+ */
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+@State(Scope.Thread)
+public class Transferred {
+    public long megabytes;
+
+    void add(long bytes) {
+        megabytes += bytes >> 20;
+    }
+}
@@ -0,0 +1,45 @@
+package io.cli;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Runs an action on SIGINT instead of letting Ctrl-C kill the JVM.
+ * <p>
+ * There is no public API for signals, so {@code sun.misc.Signal} is loaded reflectively: the build has no
+ * dependency on an internal class, and a JVM without it simply keeps the default behaviour.
+ */
+final class InterruptHandler {
+    private InterruptHandler() {
+    }
+
+    // Returns false when signals are not available, e.g. with -Xrs, and Ctrl-C keeps its default behaviour
+    static boolean install(Runnable action) {
+        try {
+            Class<?> signalClass = Class.forName("sun.misc.Signal");
+            Class<?> handlerClass = Class.forName("sun.misc.SignalHandler");
+            Object signal = signalClass.getConstructor(String.class).newInstance("INT");
+            Object handler = Proxy.newProxyInstance(handlerClass.getClassLoader(), new Class<?>[]{handlerClass},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "handle" -> {
+                            action.run();
+                            yield null;
+                        }
+                        case "equals" -> proxy == args[0];
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        default -> "InterruptHandler";
+                    });
+            Method handle = signalClass.getMethod("handle", signalClass, handlerClass);
+            handle.invoke(null, signal, handler);
+            return true;
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IllegalArgumentException) {
+                return false;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+}
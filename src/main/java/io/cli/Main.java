@@ -1,60 +1,130 @@
 package io.cli;
 
-import io.cli.command.CommandFactory;
+import io.cli.command.CommandRegistry;
 import io.cli.command.impl.assign.AssignCommandFactory;
+import io.cli.command.impl.cat.CatCommandFactory;
 import io.cli.command.impl.echo.EchoCommandFactory;
 import io.cli.command.impl.exit.ExitCommandFactory;
+import io.cli.command.impl.fg.FgCommandFactory;
 import io.cli.command.impl.external.ExternalCommandFactory;
+import io.cli.command.impl.external.PathCache;
+import io.cli.command.impl.external.StreamPump;
+import io.cli.command.impl.hash.HashCommandFactory;
+import io.cli.command.impl.jobs.JobsCommandFactory;
+import io.cli.command.impl.kill.KillCommandFactory;
 import io.cli.command.impl.pwd.PwdCommandFactory;
+import io.cli.command.impl.stats.StatsCommandFactory;
+import io.cli.command.impl.wait.WaitCommandFactory;
 import io.cli.context.Context;
-import io.cli.exception.ExitException;
 import io.cli.executor.Executor;
+import io.cli.executor.pipe.BytePipe;
+import io.cli.job.JobTable;
+import io.cli.metrics.Metrics;
+import io.cli.metrics.MetricsFileWriter;
 import io.cli.parser.ParserOrchestrator;
-import io.cli.parser.innerparser.PipeParser;
-import io.cli.parser.innerparser.QuoteParser;
-import io.cli.parser.innerparser.Substitutor;
+import io.cli.parser.innerparser.Lexer;
+import io.cli.plan.PlanCache;
+import io.cli.server.ShellServer;
+import io.cli.session.Session;
 
-import java.util.List;
-import java.util.Scanner;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 public class Main {
+    public static final String DAEMON_OPTION = "--daemon";
+
     public static void main(String[] args) {
-        Context context = new Context();
-        MainOrchestrator mainOrchestrator = getMainOrchestrator(context);
-
-        try (Scanner scanner = new Scanner(System.in)) {
-            while (true) {
-                try {
-                    System.out.print("> ");
-                    String input = scanner.nextLine();
-                    mainOrchestrator.processInput(input);
-                } catch (ExitException e) {
-                    System.out.println(e.getMessage());
-                    break;
-                } catch (Throwable e) {
-                    e.printStackTrace(System.err);
-                }
-            }
+        if (args.length > 0 && args[0].equals(DAEMON_OPTION)) {
+            System.exit(runDaemon(args));
         }
+
+        boolean interactive = args.length == 0 && System.console() != null;
+        Session session = new Session(new Context());
+        Metrics metrics = new Metrics();
+        Shell shell = newShell(session, metrics, interactive);
+        MetricsFileWriter metricsFileWriter = new MetricsFileWriter(metrics, session.getContext());
+        metricsFileWriter.start();
+
+        int exitCode = interactive
+                ? shell.runInteractive(new InputStreamReader(session.getIn()))
+                : shell.runArguments(Arrays.asList(args));
+        metricsFileWriter.stop();
+        System.out.flush();
+        System.exit(exitCode);
     }
 
-    private static MainOrchestrator getMainOrchestrator(Context context) {
-        PipeParser pipeParser = new PipeParser();
-        QuoteParser quoteParser = new QuoteParser();
-        Substitutor substitutor = new Substitutor();
+    // A shell wired like the one main runs, signals are only handled interactively
+    public static Shell newShell(Context context, Metrics metrics, boolean interactive) {
+        return newShell(new Session(context), metrics, interactive);
+    }
 
-        ParserOrchestrator parserOrchestrator = new ParserOrchestrator(pipeParser, quoteParser, substitutor, context);
+    // Processes get the terminal only if the session is attached to it, those of a server's sessions never are
+    public static Shell newShell(Session session, Metrics metrics, boolean interactive) {
+        return new Shell(session, getMainOrchestrator(session, metrics, interactive));
+    }
 
-        List<CommandFactory> commandFactories = List.of(
-                new AssignCommandFactory(context),
-                new ExitCommandFactory(),
-                new EchoCommandFactory(),
-                new PwdCommandFactory(),
-                new ExternalCommandFactory(context)  // External command always should be the last
-        );
+    // cli --daemon [socket] serves ShellClients until it is killed
+    private static int runDaemon(String[] args) {
+        Path socket = args.length > 1 ? Path.of(args[1]) : ShellServer.defaultSocket();
+        Metrics metrics = new Metrics();
+        MetricsFileWriter metricsFileWriter = new MetricsFileWriter(metrics, new Context());
+        metricsFileWriter.start();
+        try (ShellServer server = new ShellServer(socket, metrics)) {
+            server.bind();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                closeQuietly(server);
+                metricsFileWriter.stop();
+            }));
+            System.err.println(Shell.NAME + ": listening on " + socket);
+            server.serve();
+            return 0;
+        } catch (IOException e) {
+            System.err.println(Shell.NAME + ": " + socket + ": " + e.getMessage());
+            return 1;
+        }
+    }
 
-        Executor executor = new Executor(context);
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static MainOrchestrator getMainOrchestrator(Session session, Metrics metrics, boolean interactive) {
+        Context context = session.getContext();
+        ParserOrchestrator parserOrchestrator = new ParserOrchestrator(new Lexer(), context);
+        PlanCache planCache = new PlanCache(parserOrchestrator, context);
+
+        Executor executor = new Executor(session, BytePipe.DEFAULT_CAPACITY, session.isAttachedToTerminal(), metrics);
+        JobTable jobTable = new JobTable(executor);
+        if (interactive) {
+            // Ctrl-C cancels the running pipeline instead of killing the shell
+            InterruptHandler.install(executor::cancelForeground);
+        }
+
+        StreamPump streamPump = new StreamPump();
+        PathCache pathCache = new PathCache(context);
+
+        CommandRegistry commandRegistry = new CommandRegistry(
+                new AssignCommandFactory(session),
+                new ExternalCommandFactory(session, streamPump, pathCache, metrics)
+        );
+        commandRegistry.register("exit", new ExitCommandFactory(session));
+        commandRegistry.register("echo", new EchoCommandFactory(session));
+        commandRegistry.register("pwd", new PwdCommandFactory(session));
+        commandRegistry.register("cat", new CatCommandFactory(session));
+        commandRegistry.register("hash", new HashCommandFactory(session, pathCache));
+        commandRegistry.register("jobs", new JobsCommandFactory(session, jobTable));
+        commandRegistry.register("wait", new WaitCommandFactory(session, jobTable));
+        commandRegistry.register("fg", new FgCommandFactory(session, jobTable));
+        commandRegistry.register("kill", new KillCommandFactory(session, jobTable));
+        commandRegistry.register("stats", new StatsCommandFactory(session, metrics));
+        commandRegistry.addChangeListener(planCache::invalidate);
 
-        return new MainOrchestrator(parserOrchestrator, commandFactories, executor);
+        return new MainOrchestrator(session, planCache, commandRegistry, executor, jobTable, metrics, interactive);
     }
 }
\ No newline at end of file
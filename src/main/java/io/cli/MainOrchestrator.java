@@ -1,42 +1,166 @@
 package io.cli;
 
-import io.cli.command.Command;
-import io.cli.command.CommandFactory;
+import io.cli.command.CommandRegistry;
+import io.cli.context.Context;
+import io.cli.event.DispatchEvent;
 import io.cli.executor.Executor;
-import io.cli.parser.ParserOrchestrator;
+import io.cli.executor.PipelineProfile;
+import io.cli.executor.Stage;
+import io.cli.job.Job;
+import io.cli.job.JobTable;
+import io.cli.metrics.Metrics;
+import io.cli.parser.innerparser.LexedLine;
+import io.cli.parser.innerparser.TokenTemplate;
 import io.cli.parser.token.Token;
+import io.cli.plan.CompiledPlan;
+import io.cli.plan.PlanCache;
+import io.cli.session.Session;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.Optional;
+import java.util.stream.Collectors;
 
 public class MainOrchestrator {
-    private final ParserOrchestrator parserOrchestrator;
-    private final List<CommandFactory> commandFactories;
+    private static final int MAX_JOB_COMMAND_LENGTH = 80;
+
+    private final Session session;
+    private final Context context;
+    private final PlanCache planCache;
+    private final CommandRegistry commandRegistry;
     private final Executor executor;
+    private final JobTable jobTable;
+    private final Metrics metrics;
+    private final boolean interactive;
+
+    public MainOrchestrator(
+            Context context,
+            PlanCache planCache,
+            CommandRegistry commandRegistry,
+            Executor executor,
+            JobTable jobTable
+    ) {
+        this(context, planCache, commandRegistry, executor, jobTable, new Metrics());
+    }
+
+    public MainOrchestrator(
+            Context context,
+            PlanCache planCache,
+            CommandRegistry commandRegistry,
+            Executor executor,
+            JobTable jobTable,
+            Metrics metrics
+    ) {
+        this(new Session(context), planCache, commandRegistry, executor, jobTable, metrics);
+    }
+
+    // Job notices and time reports go to the session's streams
+    public MainOrchestrator(
+            Session session,
+            PlanCache planCache,
+            CommandRegistry commandRegistry,
+            Executor executor,
+            JobTable jobTable,
+            Metrics metrics
+    ) {
+        this(session, planCache, commandRegistry, executor, jobTable, metrics, true);
+    }
 
+    // Like sh, the job number of a background command is only reported to an interactive user
     public MainOrchestrator(
-            ParserOrchestrator parserOrchestrator,
-            List<CommandFactory> commandFactories,
-            Executor executor
+            Session session,
+            PlanCache planCache,
+            CommandRegistry commandRegistry,
+            Executor executor,
+            JobTable jobTable,
+            Metrics metrics,
+            boolean interactive
     ) {
-        this.parserOrchestrator = parserOrchestrator;
-        this.commandFactories = commandFactories;
+        this.session = session;
+        this.context = session.getContext();
+        this.planCache = planCache;
+        this.commandRegistry = commandRegistry;
         this.executor = executor;
+        this.jobTable = jobTable;
+        this.metrics = metrics;
+        this.interactive = interactive;
     }
 
     public void processInput(String input) throws IOException {
-        List<List<Token>> parsedTokens = parserOrchestrator.parse(input);
-        List<Command> commands = parsedTokens.stream().map(this::createCommand).toList();
-        executor.pipeAndExecuteCommands(commands);
-    }
-
-    private Command createCommand(List<Token> tokens) {
-        return commandFactories.stream()
-                .map(commandFactory -> commandFactory.newCommand(tokens))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .findFirst()
-                .orElseThrow();
+        long startNanos = System.nanoTime();
+        CompiledPlan plan = planCache.get(input);
+        recordParse(plan, startNanos);
+        run(plan, input);
+    }
+
+    public void processLine(LexedLine line) throws IOException {
+        if (line.getText() != null) {
+            processInput(line.getText());
+            return;
+        }
+
+        // Lines too long for the plan cache arrive already tokenized and substituted
+        long startNanos = System.nanoTime();
+        CompiledPlan plan = CompiledPlan.compile(line.getStages().stream()
+                .map(tokens -> tokens.stream().map(TokenTemplate::constant).toList())
+                .toList());
+        recordParse(plan, startNanos);
+        String command = line.getStages().stream()
+                .map(tokens -> tokens.stream().map(Token::getInput).collect(Collectors.joining(" ")))
+                .collect(Collectors.joining(" | "));
+        run(plan, command.substring(0, Math.min(command.length(), MAX_JOB_COMMAND_LENGTH)));
+    }
+
+    // Empty lines are not commands, they would only dilute the numbers
+    private void recordParse(CompiledPlan plan, long startNanos) {
+        if (!plan.getStages().isEmpty()) {
+            metrics.record(Metrics.Kind.PARSE, plan.getCommandName(), System.nanoTime() - startNanos);
+        }
+    }
+
+    // Prints the background jobs that finished since the last call
+    public void reportFinishedJobs() {
+        for (Job job : jobTable.drainFinished()) {
+            session.getOut().printf("[%d] %s\t%s%n", job.getId(), job.describeState(), job.getCommand());
+        }
+    }
+
+    private void run(CompiledPlan plan, String command) {
+        DispatchEvent event = new DispatchEvent();
+        event.begin();
+        long startNanos = System.nanoTime();
+        // A background job gets its own copy of the variables as they are now
+        Context planContext = plan.isBackground() ? context.fork() : context;
+        List<Stage> stages = plan.instantiate(planContext, commandRegistry);
+        String commandName = plan.getCommandName();
+        metrics.record(Metrics.Kind.DISPATCH, commandName, System.nanoTime() - startNanos);
+        if (event.shouldCommit()) {
+            event.command = command;
+            event.stages = stages.size();
+            event.background = plan.isBackground();
+            event.commit();
+        }
+
+        if (!plan.isBackground()) {
+            PipelineProfile profile = plan.isTimed() ? new PipelineProfile() : null;
+            startNanos = System.nanoTime();
+            executor.pipeAndExecuteStages(stages, profile);
+            if (!stages.isEmpty()) {
+                metrics.record(Metrics.Kind.PIPELINE, commandName, System.nanoTime() - startNanos);
+                if (!"0".equals(context.getVar("?"))) {
+                    metrics.addFailure();
+                }
+            }
+            if (profile != null) {
+                profile.print(session.getErr());
+            }
+            return;
+        }
+
+        Job job = jobTable.start(command, stages, planContext);
+        if (interactive) {
+            session.getOut().printf("[%d]%n", job.getId());
+        }
+        context.setVar("!", Integer.toString(job.getId()), false);
+        context.setVar("?", "0", false);
     }
 }
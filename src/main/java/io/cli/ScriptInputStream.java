@@ -0,0 +1,106 @@
+package io.cli;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+
+/**
+ * Stdin read as a script the way sh reads it: never further than the end of the line about to run, so the commands
+ * of the script read the rest of stdin, e.g. {@code printf '/bin/cat\nhello\n' | cli} prints hello.
+ * <p>
+ * A pipe cannot be given back what was read too far, it is read a byte at a time. A file is read in large blocks,
+ * and its offset is moved back to the end of every line returned, where a process inheriting fd 0 starts reading.
+ */
+public class ScriptInputStream extends InputStream {
+    private final InputStream in;
+    private final FileChannel channel;
+    private final byte[] block;
+    private final byte[] single = new byte[1];
+    // The file offset of block[0]
+    private long blockOffset;
+    private int position;
+    private int limit;
+
+    public ScriptInputStream(InputStream in) {
+        this.in = in;
+        this.channel = null;
+        this.block = null;
+    }
+
+    private ScriptInputStream(FileInputStream in, FileChannel channel) {
+        this.in = in;
+        this.channel = channel;
+        this.block = new byte[Shell.BATCH_BUFFER_SIZE];
+    }
+
+    // fd 0 itself, System.in buffers ahead of what it returns
+    public static ScriptInputStream ofStandardInput() {
+        FileInputStream in = new FileInputStream(FileDescriptor.in);
+        FileChannel channel = in.getChannel();
+        try {
+            // Pipes and terminals have no offset
+            channel.position();
+            return new ScriptInputStream(in, channel);
+        } catch (IOException e) {
+            return new ScriptInputStream(in);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        return channel == null ? readBytewise(bytes, offset, length) : readBlock(bytes, offset, length);
+    }
+
+    private int readBytewise(byte[] bytes, int offset, int length) throws IOException {
+        int count = 0;
+        while (count < length) {
+            int b = in.read();
+            if (b < 0) {
+                break;
+            }
+            bytes[offset + count++] = (byte) b;
+            if (b == '\n') {
+                break;
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    private int readBlock(byte[] bytes, int offset, int length) throws IOException {
+        // A command may have read stdin since the last line, the block is only good where it was left
+        long current = channel.position();
+        if (current != blockOffset + position) {
+            position = limit = 0;
+        }
+        if (position == limit) {
+            int read = in.read(block, 0, block.length);
+            if (read < 0) {
+                return -1;
+            }
+            blockOffset = current;
+            position = 0;
+            limit = read;
+        }
+
+        int count = 0;
+        while (count < length && position < limit) {
+            byte b = block[position++];
+            bytes[offset + count++] = b;
+            if (b == '\n') {
+                break;
+            }
+        }
+        channel.position(blockOffset + position);
+        return count;
+    }
+}
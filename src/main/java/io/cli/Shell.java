@@ -0,0 +1,187 @@
+package io.cli;
+
+import io.cli.context.Context;
+import io.cli.exception.ExitException;
+import io.cli.parser.innerparser.LexedLine;
+import io.cli.parser.innerparser.StreamingLexer;
+import io.cli.parser.token.Token;
+import io.cli.parser.token.TokenType;
+import io.cli.session.Session;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+
+/**
+ * Reads lines and runs them until the input ends or {@code exit} is called, then returns the status to exit with.
+ * <p>
+ * Interactively it prompts for every line and reports finished jobs. In batch mode, for {@code -c}, scripts and
+ * piped input, it prints nothing of its own, skips comment lines like a {@code #!} line, and a line that fails
+ * sets {@code $?} to 1 instead of printing a stack trace.
+ */
+public class Shell {
+    public static final String NAME = "cli";
+    public static final int BATCH_BUFFER_SIZE = 64 * 1024;
+
+    private final Session session;
+    private final Context context;
+    private final MainOrchestrator mainOrchestrator;
+
+    public Shell(Session session, MainOrchestrator mainOrchestrator) {
+        this.session = session;
+        this.context = session.getContext();
+        this.mainOrchestrator = mainOrchestrator;
+    }
+
+    // A script is read in large chunks. Not a reader over a channel: it reads holding a monitor, which pins the
+    // virtual thread of a server session waiting for its client's stdin.
+    public static Reader newBatchReader(InputStream in) {
+        return newReader(new BufferedInputStream(in, BATCH_BUFFER_SIZE));
+    }
+
+    // A script on stdin shares it with its commands, it is only read up to the line about to run
+    public static Reader newStdinReader(Session session) {
+        return newReader(session.isAttachedToTerminal()
+                ? ScriptInputStream.ofStandardInput()
+                : new ScriptInputStream(session.getIn()));
+    }
+
+    private static Reader newReader(InputStream in) {
+        return new InputStreamReader(in, Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE));
+    }
+
+    // $0 is the name of the shell or the script, $1 and on are its arguments, $# counts them and $@ joins them
+    public void setPositionalParameters(String name, List<String> args) {
+        context.setVar("0", name, false);
+        for (int i = 0; i < args.size(); i++) {
+            context.setVar(Integer.toString(i + 1), args.get(i), false);
+        }
+        context.setVar("#", Integer.toString(args.size()), false);
+        context.setVar("@", String.join(" ", args), false);
+        context.setVar("*", String.join(" ", args), false);
+    }
+
+    // cli -c "command" [name [args]], cli script [args], or a script read from stdin without arguments.
+    // A relative script path is resolved against the working directory of the session.
+    public int runArguments(List<String> args) {
+        if (args.isEmpty()) {
+            setPositionalParameters(NAME, List.of());
+            return runBatch(newStdinReader(session));
+        }
+
+        String first = args.getFirst();
+        if (first.equals("-c")) {
+            if (args.size() == 1) {
+                session.getErr().println(NAME + ": -c: option requires an argument");
+                return 2;
+            }
+            String name = args.size() > 2 ? args.get(2) : NAME;
+            setPositionalParameters(name, args.subList(Math.min(3, args.size()), args.size()));
+            return runBatch(new StringReader(args.get(1)));
+        }
+        if (first.startsWith("-")) {
+            session.getErr().println(NAME + ": " + first + ": invalid option");
+            session.getErr().println("usage: " + NAME + " [-c command [name [arg ...]] | script [arg ...]]");
+            return 2;
+        }
+
+        setPositionalParameters(first, args.subList(1, args.size()));
+        try (InputStream script = Files.newInputStream(session.resolvePath(first))) {
+            return runBatch(newBatchReader(script));
+        } catch (NoSuchFileException e) {
+            session.getErr().println(NAME + ": " + first + ": No such file or directory");
+            return 127;
+        } catch (IOException e) {
+            session.getErr().println(NAME + ": " + first + ": " + e.getMessage());
+            return 126;
+        }
+    }
+
+    public int runInteractive(Reader reader) {
+        StreamingLexer lexer = new StreamingLexer(reader);
+        while (true) {
+            try {
+                mainOrchestrator.reportFinishedJobs();
+                session.getOut().print("> ");
+                LexedLine line = lexer.next(context);
+                if (line == null) {
+                    break;
+                }
+                mainOrchestrator.processLine(line);
+            } catch (ExitException e) {
+                session.getOut().println(e.getMessage());
+                return e.getExitCode();
+            } catch (Throwable e) {
+                e.printStackTrace(session.getErr());
+            }
+        }
+        return lastStatus();
+    }
+
+    public int runBatch(Reader reader) {
+        StreamingLexer lexer = new StreamingLexer(reader);
+        while (true) {
+            LexedLine line;
+            try {
+                line = lexer.next(context);
+            } catch (IOException e) {
+                session.getErr().println(NAME + ": " + e.getMessage());
+                return 1;
+            } catch (RuntimeException e) {
+                // A long line is tokenized while it is read, the lexer is past it whatever went wrong
+                fail(e);
+                continue;
+            }
+            if (line == null) {
+                return lastStatus();
+            }
+            if (isComment(line)) {
+                continue;
+            }
+
+            try {
+                mainOrchestrator.processLine(line);
+            } catch (ExitException e) {
+                return e.getExitCode();
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+    }
+
+    private void fail(Exception e) {
+        session.getErr().println(NAME + ": " + e.getMessage());
+        context.setVar("?", "1", false);
+    }
+
+    private int lastStatus() {
+        try {
+            return Integer.parseInt(context.getVar("?"));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    private static boolean isComment(LexedLine line) {
+        if (line.getText() != null) {
+            String text = line.getText().stripLeading();
+            return text.startsWith("#");
+        }
+        List<List<Token>> stages = line.getStages();
+        if (stages.isEmpty() || stages.getFirst().isEmpty()) {
+            return false;
+        }
+        Token first = stages.getFirst().getFirst();
+        return first.getType() == TokenType.COMMAND && first.getInput().startsWith("#");
+    }
+}
@@ -0,0 +1,15 @@
+package io.cli.command;
+
+/**
+ * A command that can exchange its data as buffers. Between two such commands the executor moves buffers from one
+ * to the other without copying them, with anything else it connects them through streams.
+ * <p>
+ * The streams are still set, a command must use the buffer ends instead of them when they are set too.
+ */
+public interface BufferCommand extends Command {
+    // A command that only prints has no input to take buffers from
+    default void setBufferSource(BufferSource source) {
+    }
+
+    void setBufferSink(BufferSink sink);
+}
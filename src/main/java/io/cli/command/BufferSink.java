@@ -0,0 +1,23 @@
+package io.cli.command;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The output of a {@link BufferCommand}, handed over as whole buffers instead of a stream of bytes.
+ */
+public interface BufferSink {
+    // An empty buffer for the caller to fill
+    ByteBuffer allocate();
+
+    /**
+     * Hands a buffer ready to be read over to the reader, an empty one is just given back. The buffer belongs to
+     * the sink afterwards and must not be touched any more, even if this throws.
+     */
+    void put(ByteBuffer buffer) throws IOException;
+
+    // Gives back an allocated buffer that is not going to be filled
+    void release(ByteBuffer buffer);
+
+    void flush() throws IOException;
+}
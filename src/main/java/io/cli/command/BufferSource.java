@@ -0,0 +1,18 @@
+package io.cli.command;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The input of a {@link BufferCommand}, delivered as whole buffers instead of a stream of bytes.
+ */
+public interface BufferSource {
+    /**
+     * The next buffer, ready to be read, or null at the end of the input.
+     * The caller owns the buffer from now on: it may {@link #release} it, or put it into a {@link BufferSink}.
+     */
+    ByteBuffer take() throws IOException;
+
+    // Gives a taken buffer back once its content is consumed
+    void release(ByteBuffer buffer);
+}
@@ -0,0 +1,195 @@
+package io.cli.command;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Text output of a builtin, encoded as UTF-8.
+ * <p>
+ * On the console, which the {@link io.cli.session.Session} of the builtin tells apart, every completed line is shown
+ * at once. Into a pipe or a file the text is collected in a pooled
+ * block and written when the block is full or on {@link #flush()}, which a builtin calls once when it is done.
+ * ASCII text is copied into the block char by char, without going through a charset encoder.
+ * <p>
+ * Given the {@link BufferSink} of a {@link BufferCommand}, the blocks come from the sink and are handed over to it
+ * as they are, so text printed into a buffer pipe is never copied again.
+ * <p>
+ * Like {@link java.io.PrintWriter}, the print methods never throw: after a failed write everything else is dropped
+ * and {@link #checkError()} returns true.
+ */
+public class BuiltinOutput {
+    private static final BufferPool POOL = new BufferPool();
+
+    private final OutputStream outputStream;
+    private final boolean lineBuffered;
+    private BufferSink sink;
+
+    private ByteBuffer block;
+    private byte[] bytes;
+    private int offset;
+    private int count;
+    private boolean error;
+
+    public BuiltinOutput(OutputStream outputStream, boolean lineBuffered) {
+        this(outputStream, null, lineBuffered);
+    }
+
+    // The sink, if there is one, is used instead of the stream it writes to
+    public BuiltinOutput(OutputStream outputStream, BufferSink sink, boolean lineBuffered) {
+        this.outputStream = outputStream;
+        this.sink = sink;
+        this.lineBuffered = lineBuffered;
+    }
+
+    // The error stream of a builtin, which prints its messages line by line
+    public static PrintStream printStream(OutputStream outputStream) {
+        return outputStream instanceof PrintStream printStream ? printStream : new PrintStream(outputStream, true);
+    }
+
+    public boolean isLineBuffered() {
+        return lineBuffered;
+    }
+
+    public void print(CharSequence text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // The rest is encoded at once, so surrogate pairs stay together
+                write(text.subSequence(i, length).toString().getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            put((byte) c);
+        }
+        if (lineBuffered && length > 0 && text.charAt(length - 1) == '\n') {
+            flush();
+        }
+    }
+
+    public void print(char c) {
+        if (c >= 0x80) {
+            write(String.valueOf(c).getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        put((byte) c);
+        if (lineBuffered && c == '\n') {
+            flush();
+        }
+    }
+
+    public void println(CharSequence text) {
+        print(text);
+        println();
+    }
+
+    public void println() {
+        print('\n');
+    }
+
+    public void printf(String format, Object... args) {
+        print(String.format(format, args));
+    }
+
+    // Writes out everything printed so far and gives the block back
+    public void flush() {
+        if (error) {
+            return;
+        }
+        try {
+            drain();
+            if (sink != null) {
+                sink.flush();
+            } else {
+                outputStream.flush();
+            }
+        } catch (IOException e) {
+            error = true;
+        }
+        if (block != null) {
+            if (sink != null) {
+                sink.release(block);
+            } else {
+                POOL.release(block);
+            }
+            block = null;
+            bytes = null;
+        }
+    }
+
+    // Flushes, then tells whether any write failed
+    public boolean checkError() {
+        flush();
+        return error;
+    }
+
+    private void put(byte b) {
+        if (error) {
+            return;
+        }
+        if (bytes == null) {
+            acquire();
+        } else if (count == block.capacity()) {
+            drainQuietly();
+            if (error) {
+                return;
+            }
+            if (bytes == null) {
+                acquire();
+            }
+        }
+        bytes[offset + count++] = b;
+    }
+
+    private void acquire() {
+        if (sink != null) {
+            block = sink.allocate();
+            if (block.hasArray()) {
+                bytes = block.array();
+                offset = block.arrayOffset();
+                return;
+            }
+            // A direct block would have to be filled byte by byte, the stream of the sink is used instead
+            sink.release(block);
+            sink = null;
+        }
+        block = POOL.acquire();
+        bytes = block.array();
+        offset = 0;
+    }
+
+    private void write(byte[] encoded) {
+        for (byte b : encoded) {
+            put(b);
+        }
+        if (lineBuffered && encoded.length > 0 && encoded[encoded.length - 1] == '\n') {
+            flush();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (count > 0) {
+            int length = count;
+            count = 0;
+            if (sink == null) {
+                outputStream.write(bytes, offset, length);
+                return;
+            }
+            // The block belongs to the sink from now on, the next print takes a new one
+            ByteBuffer full = block.clear().limit(length);
+            block = null;
+            bytes = null;
+            sink.put(full);
+        }
+    }
+
+    private void drainQuietly() {
+        try {
+            drain();
+        } catch (IOException e) {
+            error = true;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package io.cli.command;
 
+import io.cli.context.Context;
+
 import java.io.InputStream;
 import java.io.OutputStream;
 
@@ -9,4 +11,12 @@ public interface Command {
     void setInputStream(InputStream newInputStream);
 
     void setOutputStream(OutputStream newOutputStream);
+
+    // Where the command reports its errors, for commands that have any
+    default void setErrorStream(OutputStream newErrorStream) {
+    }
+
+    // The variables the command reads and writes, when it runs in a subshell instead of the shell itself
+    default void setContext(Context context) {
+    }
 }
@@ -0,0 +1,71 @@
+package io.cli.command;
+
+import io.cli.parser.token.Token;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Dispatches a stage to its command factory with one hash lookup, however many builtins are registered.
+ * <p>
+ * The rules are tried in this order: a first word of the form {@code NAME=...} is an assignment,
+ * a first word registered as a builtin goes to that builtin, anything else is an external command.
+ * A builtin that declines its arguments also falls back to an external command.
+ */
+public class CommandRegistry {
+    private final Map<String, CommandFactory> builtins = new ConcurrentHashMap<>();
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+    private final CommandFactory assignmentFactory;
+    private final CommandFactory externalFactory;
+
+    public CommandRegistry(CommandFactory assignmentFactory, CommandFactory externalFactory) {
+        this.assignmentFactory = assignmentFactory;
+        this.externalFactory = externalFactory;
+    }
+
+    public void register(String name, CommandFactory factory) {
+        builtins.put(name, factory);
+        changeListeners.forEach(Runnable::run);
+    }
+
+    public void unregister(String name) {
+        if (builtins.remove(name) != null) {
+            changeListeners.forEach(Runnable::run);
+        }
+    }
+
+    public boolean isBuiltin(String name) {
+        return builtins.containsKey(name);
+    }
+
+    // Called after every change of the builtins, for anything that remembers how commands were resolved
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    public Command newCommand(List<Token> args) {
+        if (!args.isEmpty()) {
+            String name = args.getFirst().getInput();
+
+            if (name.indexOf('=') > 0) {
+                Optional<Command> assignment = assignmentFactory.newCommand(args);
+                if (assignment.isPresent()) {
+                    return assignment.get();
+                }
+            }
+
+            CommandFactory builtin = builtins.get(name);
+            if (builtin != null) {
+                Optional<Command> command = builtin.newCommand(args);
+                if (command.isPresent()) {
+                    return command.get();
+                }
+            }
+        }
+
+        return externalFactory.newCommand(args).orElseThrow();
+    }
+}
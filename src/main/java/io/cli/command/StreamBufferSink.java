@@ -0,0 +1,56 @@
+package io.cli.command;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes buffers to a stream and gives them back to the pool, for a {@link BufferCommand} whose
+ * output is not a {@link io.cli.executor.pipe.BufferChannel}.
+ */
+public class StreamBufferSink implements BufferSink {
+    private final OutputStream outputStream;
+    private final BufferPool pool;
+    private byte[] scratch;
+
+    public StreamBufferSink(OutputStream outputStream, BufferPool pool) {
+        this.outputStream = outputStream;
+        this.pool = pool;
+    }
+
+    @Override
+    public ByteBuffer allocate() {
+        return pool.acquire();
+    }
+
+    @Override
+    public void put(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.hasArray()) {
+                outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                buffer.position(buffer.limit());
+            } else {
+                if (scratch == null) {
+                    scratch = new byte[pool.bufferSize()];
+                }
+                while (buffer.hasRemaining()) {
+                    int count = Math.min(scratch.length, buffer.remaining());
+                    buffer.get(scratch, 0, count);
+                    outputStream.write(scratch, 0, count);
+                }
+            }
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    @Override
+    public void release(ByteBuffer buffer) {
+        pool.release(buffer);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        outputStream.flush();
+    }
+}
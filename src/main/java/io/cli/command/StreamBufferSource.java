@@ -0,0 +1,56 @@
+package io.cli.command;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads a stream into pooled buffers, for a {@link BufferCommand} whose input is not a
+ * {@link io.cli.executor.pipe.BufferChannel}.
+ */
+public class StreamBufferSource implements BufferSource {
+    private final InputStream inputStream;
+    private final BufferPool pool;
+    private byte[] scratch;
+
+    public StreamBufferSource(InputStream inputStream, BufferPool pool) {
+        this.inputStream = inputStream;
+        this.pool = pool;
+    }
+
+    @Override
+    public ByteBuffer take() throws IOException {
+        ByteBuffer buffer = pool.acquire();
+        int bytesRead;
+        try {
+            if (buffer.hasArray()) {
+                bytesRead = inputStream.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                if (bytesRead > 0) {
+                    buffer.position(buffer.position() + bytesRead);
+                }
+            } else {
+                if (scratch == null) {
+                    scratch = new byte[buffer.remaining()];
+                }
+                bytesRead = inputStream.read(scratch, 0, Math.min(scratch.length, buffer.remaining()));
+                if (bytesRead > 0) {
+                    buffer.put(scratch, 0, bytesRead);
+                }
+            }
+        } catch (IOException e) {
+            pool.release(buffer);
+            throw e;
+        }
+
+        if (bytesRead < 0) {
+            pool.release(buffer);
+            return null;
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    public void release(ByteBuffer buffer) {
+        pool.release(buffer);
+    }
+}
@@ -2,22 +2,25 @@ package io.cli.command.impl.assign;
 
 import io.cli.command.Command;
 import io.cli.context.Context;
+import io.cli.session.Session;
 
 import java.io.InputStream;
 import java.io.OutputStream;
 
 public class AssignCommand implements Command {
-    private final Context context;
+    private Context context;
     private final String key;
     private final String value;
 
-    private InputStream inputStream = System.in;
-    private OutputStream outputStream = System.out;
+    private InputStream inputStream;
+    private OutputStream outputStream;
 
-    public AssignCommand(Context context, String key, String value) {
-        this.context = context;
+    public AssignCommand(Session session, String key, String value) {
+        this.context = session.getContext();
         this.key = key;
         this.value = value;
+        inputStream = session.getIn();
+        outputStream = session.getOut();
     }
 
     @Override
@@ -26,6 +29,11 @@ public class AssignCommand implements Command {
         return 0;
     }
 
+    @Override
+    public void setContext(Context newContext) {
+        context = newContext;
+    }
+
     @Override
     public void setInputStream(InputStream newInputStream) {
         inputStream = newInputStream;
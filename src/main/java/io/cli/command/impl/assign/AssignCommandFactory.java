@@ -4,15 +4,20 @@ import io.cli.command.Command;
 import io.cli.command.CommandFactory;
 import io.cli.context.Context;
 import io.cli.parser.token.Token;
+import io.cli.session.Session;
 
 import java.util.List;
 import java.util.Optional;
 
 public class AssignCommandFactory implements CommandFactory {
-    private final Context context;
+    private final Session session;
 
     public AssignCommandFactory(Context context) {
-        this.context = context;
+        this(new Session(context));
+    }
+
+    public AssignCommandFactory(Session session) {
+        this.session = session;
     }
 
     @Override
@@ -55,7 +60,7 @@ public class AssignCommandFactory implements CommandFactory {
         }
 
         String value = valueBuilder.toString();
-        AssignCommand assignCommand = new AssignCommand(context, key, value);
+        AssignCommand assignCommand = new AssignCommand(session, key, value);
 
         return Optional.of(assignCommand);
     }
@@ -0,0 +1,137 @@
+package io.cli.command.impl.cat;
+
+import io.cli.command.BufferCommand;
+import io.cli.command.BufferPool;
+import io.cli.command.BufferSink;
+import io.cli.command.BufferSource;
+import io.cli.command.BuiltinOutput;
+import io.cli.command.StreamBufferSink;
+import io.cli.command.StreamBufferSource;
+import io.cli.parser.token.Token;
+import io.cli.session.Session;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+
+public class CatCommand implements BufferCommand {
+    private final Session session;
+    private final List<Token> args;
+
+    private InputStream inputStream;
+    private OutputStream outputStream;
+    private PrintStream errorStream;
+    private BufferSource bufferSource;
+    private BufferSink bufferSink;
+
+    // Relative files are read from the working directory of the session
+    public CatCommand(Session session, List<Token> args) {
+        this.session = session;
+        this.args = args;
+        inputStream = session.getIn();
+        outputStream = session.getOut();
+        errorStream = session.getErr();
+    }
+
+    @Override
+    public int execute() {
+        BufferPool pool = null;
+        if (bufferSource == null || bufferSink == null) {
+            pool = new BufferPool();
+        }
+        BufferSource source = bufferSource != null ? bufferSource : new StreamBufferSource(inputStream, pool);
+        BufferSink sink = bufferSink != null ? bufferSink : new StreamBufferSink(outputStream, pool);
+
+        int exitCode = 0;
+        try {
+            if (args.size() == 1) {
+                copy(source, sink);
+            }
+            for (int i = 1; i < args.size(); i++) {
+                String name = args.get(i).getInput();
+                if (name.equals("-")) {
+                    copy(source, sink);
+                } else if (!copy(name, sink)) {
+                    exitCode = 1;
+                }
+            }
+            sink.flush();
+        } catch (IOException e) {
+            return 1;
+        }
+        return exitCode;
+    }
+
+    // The buffers of the input are passed on as they are, between two buffer commands nothing is copied.
+    // The input may be live, like tail -f, so every chunk is flushed instead of waiting for a full buffer.
+    private static void copy(BufferSource source, BufferSink sink) throws IOException {
+        ByteBuffer buffer;
+        while ((buffer = source.take()) != null) {
+            sink.put(buffer);
+            sink.flush();
+        }
+    }
+
+    // Returns false if the file cannot be read, failures of the output are thrown
+    private boolean copy(String name, BufferSink sink) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(session.resolvePath(name));
+        } catch (NoSuchFileException e) {
+            errorStream.println("cat: " + name + ": No such file or directory");
+            return false;
+        } catch (IOException e) {
+            errorStream.println("cat: " + name + ": " + e.getMessage());
+            return false;
+        }
+
+        try (channel) {
+            while (true) {
+                ByteBuffer buffer = sink.allocate();
+                int bytesRead;
+                try {
+                    bytesRead = channel.read(buffer);
+                } catch (IOException e) {
+                    sink.put(buffer.flip());
+                    errorStream.println("cat: " + name + ": " + e.getMessage());
+                    return false;
+                }
+                if (bytesRead < 0) {
+                    sink.release(buffer);
+                    return true;
+                }
+                sink.put(buffer.flip());
+            }
+        }
+    }
+
+    @Override
+    public void setInputStream(InputStream newInputStream) {
+        inputStream = newInputStream;
+    }
+
+    @Override
+    public void setOutputStream(OutputStream newOutputStream) {
+        outputStream = newOutputStream;
+    }
+
+    @Override
+    public void setErrorStream(OutputStream newErrorStream) {
+        errorStream = BuiltinOutput.printStream(newErrorStream);
+    }
+
+    @Override
+    public void setBufferSource(BufferSource source) {
+        bufferSource = source;
+    }
+
+    @Override
+    public void setBufferSink(BufferSink sink) {
+        bufferSink = sink;
+    }
+}
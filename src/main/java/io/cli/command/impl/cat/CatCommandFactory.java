@@ -0,0 +1,35 @@
+package io.cli.command.impl.cat;
+
+import io.cli.command.Command;
+import io.cli.command.CommandFactory;
+import io.cli.parser.token.Token;
+import io.cli.session.Session;
+
+import java.util.List;
+import java.util.Optional;
+
+public class CatCommandFactory implements CommandFactory {
+    private final Session session;
+
+    public CatCommandFactory(Session session) {
+        this.session = session;
+    }
+
+    private static boolean checkArgs(List<Token> args) {
+        if (args.isEmpty()) {
+            return false;
+        }
+
+        return args.getFirst().getInput().equals("cat");
+    }
+
+    @Override
+    public Optional<Command> newCommand(List<Token> args) {
+        if (!checkArgs(args)) {
+            return Optional.empty();
+        }
+
+        Command command = new CatCommand(session, args);
+        return Optional.of(command);
+    }
+}
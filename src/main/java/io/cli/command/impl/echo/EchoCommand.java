@@ -1,33 +1,39 @@
 package io.cli.command.impl.echo;
 
-import io.cli.command.Command;
+import io.cli.command.BufferCommand;
+import io.cli.command.BufferSink;
+import io.cli.command.BuiltinOutput;
 import io.cli.parser.token.Token;
+import io.cli.session.Session;
 
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PrintWriter;
 import java.util.List;
 
-public class EchoCommand implements Command {
+public class EchoCommand implements BufferCommand {
+    private final Session session;
     private final List<Token> args;
 
-    private InputStream inputStream = System.in;
-    private OutputStream outputStream = System.out;
+    private InputStream inputStream;
+    private OutputStream outputStream;
+    private BufferSink bufferSink;
 
-    public EchoCommand(List<Token> args) {
+    public EchoCommand(Session session, List<Token> args) {
+        this.session = session;
         this.args = args;
+        inputStream = session.getIn();
+        outputStream = session.getOut();
     }
 
     @Override
     public int execute() {
-        PrintWriter printWriter = new PrintWriter(outputStream);
+        BuiltinOutput output = new BuiltinOutput(outputStream, bufferSink, session.isConsole(outputStream));
         for (int i = 1; i < args.size(); i++) {
-            printWriter.print(args.get(i).getInput());
-            printWriter.print(' ');
+            output.print(args.get(i).getInput());
+            output.print(' ');
         }
-        printWriter.println();
-        printWriter.flush();
-        return 0;
+        output.println();
+        return output.checkError() ? 1 : 0;
     }
 
     @Override
@@ -39,4 +45,9 @@ public class EchoCommand implements Command {
     public void setOutputStream(OutputStream newOutputStream) {
         outputStream = newOutputStream;
     }
+
+    @Override
+    public void setBufferSink(BufferSink sink) {
+        bufferSink = sink;
+    }
 }
@@ -3,12 +3,16 @@ package io.cli.command.impl.echo;
 import io.cli.command.Command;
 import io.cli.command.CommandFactory;
 import io.cli.parser.token.Token;
+import io.cli.session.Session;
 
 import java.util.List;
 import java.util.Optional;
 
 public class EchoCommandFactory implements CommandFactory {
-    public EchoCommandFactory() {
+    private final Session session;
+
+    public EchoCommandFactory(Session session) {
+        this.session = session;
     }
 
     private static boolean checkArgs(List<Token> args) {
@@ -25,7 +29,7 @@ public class EchoCommandFactory implements CommandFactory {
             return Optional.empty();
         }
 
-        Command command = new EchoCommand(args);
+        Command command = new EchoCommand(session, args);
         return Optional.of(command);
     }
 }
@@ -3,6 +3,7 @@ package io.cli.command.impl.exit;
 import io.cli.command.Command;
 import io.cli.exception.ExitException;
 import io.cli.parser.token.Token;
+import io.cli.session.Session;
 
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -11,11 +12,13 @@ import java.util.List;
 public class ExitCommand implements Command {
     private final List<Token> args;
 
-    private InputStream inputStream = System.in;
-    private OutputStream outputStream = System.out;
+    private InputStream inputStream;
+    private OutputStream outputStream;
 
-    public ExitCommand(List<Token> args) {
+    public ExitCommand(Session session, List<Token> args) {
         this.args = args;
+        inputStream = session.getIn();
+        outputStream = session.getOut();
     }
 
     @Override
@@ -3,12 +3,16 @@ package io.cli.command.impl.exit;
 import io.cli.command.Command;
 import io.cli.command.CommandFactory;
 import io.cli.parser.token.Token;
+import io.cli.session.Session;
 
 import java.util.List;
 import java.util.Optional;
 
 public class ExitCommandFactory implements CommandFactory {
-    public ExitCommandFactory() {
+    private final Session session;
+
+    public ExitCommandFactory(Session session) {
+        this.session = session;
     }
 
     private static boolean checkArgs(List<Token> args) {
@@ -25,7 +29,7 @@ public class ExitCommandFactory implements CommandFactory {
             return Optional.empty();
         }
 
-        Command command = new ExitCommand(args);
+        Command command = new ExitCommand(session, args);
         return Optional.of(command);
     }
 }
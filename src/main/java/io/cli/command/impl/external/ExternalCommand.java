@@ -1,73 +1,150 @@
 package io.cli.command.impl.external;
 
-import io.cli.command.Command;
 import io.cli.context.Context;
+import io.cli.metrics.Metrics;
+import io.cli.session.Session;
 
-import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
 
-public class ExternalCommand implements Command {
-    private final Context context;
+public class ExternalCommand implements ProcessCommand {
+    private final Session session;
+    private final StreamPump streamPump;
+    private final PathCache pathCache;
+    private final Metrics metrics;
     private final List<String> args;
 
-    private InputStream inputStream = System.in;
-    private OutputStream outputStream = System.out;
+    private InputStream inputStream;
+    private OutputStream outputStream;
+    private OutputStream errorStream;
+    private Context context;
 
-    private final ExecutorService streamsExecutor = Executors.newFixedThreadPool(3);
+    private ProcessBuilder.Redirect inputRedirect = ProcessBuilder.Redirect.PIPE;
+    private ProcessBuilder.Redirect outputRedirect = ProcessBuilder.Redirect.PIPE;
+    private ProcessBuilder.Redirect errorRedirect = ProcessBuilder.Redirect.PIPE;
+    private boolean redirectErrorStream = false;
+    private long[] cpuNanos;
 
-    public ExternalCommand(Context context, List<String> args) {
-        this.context = context;
+    public ExternalCommand(Context context, StreamPump streamPump, List<String> args) {
+        this(context, streamPump, null, args);
+    }
+
+    public ExternalCommand(Context context, StreamPump streamPump, PathCache pathCache, List<String> args) {
+        this(context, streamPump, pathCache, null, args);
+    }
+
+    public ExternalCommand(Context context, StreamPump streamPump, PathCache pathCache, Metrics metrics, List<String> args) {
+        this(new Session(context), streamPump, pathCache, metrics, args);
+    }
+
+    public ExternalCommand(Session session, StreamPump streamPump, PathCache pathCache, Metrics metrics, List<String> args) {
+        this.session = session;
+        this.streamPump = streamPump;
+        this.pathCache = pathCache;
+        this.metrics = metrics;
         this.args = args;
+        inputStream = session.getIn();
+        outputStream = session.getOut();
+        errorStream = session.getErr();
+        context = session.getContext();
     }
 
     @Override
     public int execute() {
-        ProcessBuilder processBuilder = new ProcessBuilder(args);
-        processBuilder.environment().putAll(context.getEnvironment());
-
-        try {
-            Process process = processBuilder.start();
-            streamsExecutor.submit(() -> {
-                try (OutputStream processInput = process.getOutputStream()) {
-                    byte[] buffer = new byte[1024];
-                    int bytesRead;
-                    while ((bytesRead = inputStream.read(buffer)) != -1) {
-                        processInput.write(buffer, 0, bytesRead);
-                        processInput.flush();
-                    }
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-            });
-
-            streamsExecutor.submit(() -> {
-                try (InputStream processOutput = process.getInputStream()) {
-                    processOutput.transferTo(outputStream);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-            });
-
-            streamsExecutor.submit(() -> {
-                try (InputStream processError = process.getErrorStream()) {
-                    processError.transferTo(System.err);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-            });
-
-            int exitCode = process.waitFor();
-            streamsExecutor.shutdown();
-
-            return exitCode;
-
-        } catch (IOException | InterruptedException e) {
-            return 1;
+        // Only the stdin of the shell the JVM was started as is fd 0, not a pipe or a file of the pipeline
+        boolean standardInput = session.isAttachedToTerminal() && inputStream == session.getIn();
+        return ProcessRunner.run(streamPump, metrics, List.of(newProcessBuilder()),
+                inputStream, outputStream, errorStream, standardInput, new int[1], cpuNanos);
+    }
+
+    @Override
+    public void sampleCpuTime() {
+        cpuNanos = new long[]{-1};
+    }
+
+    @Override
+    public long getCpuNanos() {
+        return cpuNanos == null ? -1 : cpuNanos[0];
+    }
+
+    StreamPump getStreamPump() {
+        return streamPump;
+    }
+
+    Metrics getMetrics() {
+        return metrics;
+    }
+
+    Session getSession() {
+        return session;
+    }
+
+    ProcessBuilder newProcessBuilder() {
+        ProcessBuilder processBuilder = new ProcessBuilder(resolveArgs());
+        Map<String, String> environment = context.getEnvironment();
+        if (!session.inheritsEnvironment()) {
+            processBuilder.environment().clear();
+            processBuilder.environment().putAll(environment);
+        } else if (!environment.isEmpty()) {
+            // Without exported variables the child inherits the environment of the shell, which is never copied
+            processBuilder.environment().putAll(environment);
+        }
+        processBuilder.directory(session.getWorkingDirectory().toFile());
+        processBuilder.redirectInput(inputRedirect);
+        processBuilder.redirectOutput(outputRedirect);
+        processBuilder.redirectError(errorRedirect);
+        processBuilder.redirectErrorStream(redirectErrorStream);
+        return processBuilder;
+    }
+
+    // A known executable is started by its absolute path, so the PATH directories are not searched again
+    private List<String> resolveArgs() {
+        if (pathCache == null || args.isEmpty()) {
+            return args;
         }
+        return pathCache.resolve(args.getFirst())
+                .map(executable -> {
+                    List<String> resolved = new ArrayList<>(args);
+                    resolved.set(0, executable);
+                    return resolved;
+                })
+                .orElse(args);
+    }
+
+    public ProcessBuilder.Redirect getInputRedirect() {
+        return inputRedirect;
+    }
+
+    public ProcessBuilder.Redirect getOutputRedirect() {
+        return outputRedirect;
+    }
+
+    @Override
+    public void redirectInput(ProcessBuilder.Redirect redirect) {
+        inputRedirect = redirect;
+    }
+
+    @Override
+    public void redirectOutput(ProcessBuilder.Redirect redirect) {
+        outputRedirect = redirect;
+    }
+
+    @Override
+    public void redirectError(ProcessBuilder.Redirect redirect) {
+        errorRedirect = redirect;
+    }
+
+    @Override
+    public void redirectErrorStream(boolean redirectErrorStream) {
+        this.redirectErrorStream = redirectErrorStream;
+    }
+
+    @Override
+    public void setContext(Context newContext) {
+        context = newContext;
     }
 
     @Override
@@ -79,4 +156,9 @@ public class ExternalCommand implements Command {
     public void setOutputStream(OutputStream newOutputStream) {
         outputStream = newOutputStream;
     }
+
+    @Override
+    public void setErrorStream(OutputStream newErrorStream) {
+        errorStream = newErrorStream;
+    }
 }
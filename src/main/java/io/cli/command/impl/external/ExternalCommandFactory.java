@@ -3,20 +3,40 @@ package io.cli.command.impl.external;
 import io.cli.command.Command;
 import io.cli.command.CommandFactory;
 import io.cli.context.Context;
+import io.cli.metrics.Metrics;
 import io.cli.parser.token.Token;
+import io.cli.session.Session;
 
 import java.util.List;
 import java.util.Optional;
 
 public class ExternalCommandFactory implements CommandFactory {
-    private final Context context;
+    private final Session session;
+    private final StreamPump streamPump;
+    private final PathCache pathCache;
+    private final Metrics metrics;
 
-    public ExternalCommandFactory(Context context) {
-        this.context = context;
+    public ExternalCommandFactory(Context context, StreamPump streamPump) {
+        this(context, streamPump, new PathCache(context));
+    }
+
+    public ExternalCommandFactory(Context context, StreamPump streamPump, PathCache pathCache) {
+        this(context, streamPump, pathCache, null);
+    }
+
+    public ExternalCommandFactory(Context context, StreamPump streamPump, PathCache pathCache, Metrics metrics) {
+        this(new Session(context), streamPump, pathCache, metrics);
+    }
+
+    public ExternalCommandFactory(Session session, StreamPump streamPump, PathCache pathCache, Metrics metrics) {
+        this.session = session;
+        this.streamPump = streamPump;
+        this.pathCache = pathCache;
+        this.metrics = metrics;
     }
 
     @Override
     public Optional<Command> newCommand(List<Token> args) {
-        return Optional.of(new ExternalCommand(context, args.stream().map(Token::getInput).toList()));
+        return Optional.of(new ExternalCommand(session, streamPump, pathCache, metrics, args.stream().map(Token::getInput).toList()));
     }
 }
@@ -0,0 +1,99 @@
+package io.cli.command.impl.external;
+
+import io.cli.session.Session;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+public class ExternalPipelineCommand implements ProcessCommand {
+    private final List<ExternalCommand> commands;
+
+    private InputStream inputStream;
+    private OutputStream outputStream;
+    private OutputStream errorStream;
+    private int[] statuses = new int[0];
+    private long[] cpuNanos;
+
+    // The processes share the session of the first one
+    public ExternalPipelineCommand(List<ExternalCommand> commands) {
+        this.commands = commands;
+        Session session = commands.getFirst().getSession();
+        inputStream = session.getIn();
+        outputStream = session.getOut();
+        errorStream = session.getErr();
+    }
+
+    @Override
+    public int execute() {
+        List<ProcessBuilder> processBuilders = commands.stream().map(ExternalCommand::newProcessBuilder).toList();
+        int[] processStatuses = new int[commands.size()];
+        ExternalCommand first = commands.getFirst();
+        Session session = first.getSession();
+        boolean standardInput = session.isAttachedToTerminal() && inputStream == session.getIn();
+        int exitCode = ProcessRunner.run(first.getStreamPump(), first.getMetrics(), processBuilders,
+                inputStream, outputStream, errorStream, standardInput, processStatuses, cpuNanos);
+        statuses = processStatuses;
+        return exitCode;
+    }
+
+    // The exit codes of all the processes of the last run, in pipeline order
+    public int[] getStatuses() {
+        return statuses.clone();
+    }
+
+    @Override
+    public void sampleCpuTime() {
+        cpuNanos = new long[commands.size()];
+    }
+
+    // The sum over the processes whose time is known
+    @Override
+    public long getCpuNanos() {
+        if (cpuNanos == null) {
+            return -1;
+        }
+        long total = -1;
+        for (long nanos : cpuNanos) {
+            if (nanos >= 0) {
+                total = Math.max(total, 0) + nanos;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public void redirectInput(ProcessBuilder.Redirect redirect) {
+        commands.getFirst().redirectInput(redirect);
+    }
+
+    @Override
+    public void redirectOutput(ProcessBuilder.Redirect redirect) {
+        commands.getLast().redirectOutput(redirect);
+    }
+
+    @Override
+    public void redirectError(ProcessBuilder.Redirect redirect) {
+        commands.forEach(command -> command.redirectError(redirect));
+    }
+
+    @Override
+    public void redirectErrorStream(boolean redirectErrorStream) {
+        commands.forEach(command -> command.redirectErrorStream(redirectErrorStream));
+    }
+
+    @Override
+    public void setInputStream(InputStream newInputStream) {
+        inputStream = newInputStream;
+    }
+
+    @Override
+    public void setOutputStream(OutputStream newOutputStream) {
+        outputStream = newOutputStream;
+    }
+
+    @Override
+    public void setErrorStream(OutputStream newErrorStream) {
+        errorStream = newErrorStream;
+    }
+}
@@ -0,0 +1,137 @@
+package io.cli.command.impl.external;
+
+import io.cli.context.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers where commands were found on {@code PATH}, like the hash table of bash.
+ * <p>
+ * Everything is forgotten when {@code PATH} changes. An entry is also dropped when the modification time of its
+ * directory changes, which happens when the executable is removed or replaced. Like in bash, an executable added
+ * to a directory earlier on {@code PATH} is not noticed until {@link #clear()}.
+ */
+public class PathCache {
+    private final Context context;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile String path;
+
+    public PathCache(Context context) {
+        this.context = context;
+    }
+
+    // Names with a slash are paths already and are never looked up
+    public Optional<String> resolve(String name) {
+        if (name.isEmpty() || name.indexOf('/') >= 0) {
+            return Optional.empty();
+        }
+        checkPath();
+
+        Entry entry = entries.get(name);
+        if (entry != null && entry.isValid()) {
+            hits.increment();
+            entry.hits.increment();
+            return Optional.of(entry.executable);
+        }
+
+        misses.increment();
+        return Optional.ofNullable(lookup(name)).map(found -> found.executable);
+    }
+
+    // Looks the name up again even if it is known, without counting it as a hit or a miss
+    public Optional<String> prefill(String name) {
+        if (name.isEmpty() || name.indexOf('/') >= 0) {
+            return Optional.empty();
+        }
+        checkPath();
+        return Optional.ofNullable(lookup(name)).map(found -> found.executable);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    // Known executables with the number of hits of each, sorted by path
+    public Map<String, Long> getEntries() {
+        Map<String, Long> result = new TreeMap<>();
+        entries.forEach((name, entry) -> result.put(entry.executable, entry.hits.sum()));
+        return result;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private void checkPath() {
+        String currentPath = currentPath();
+        if (!Objects.equals(path, currentPath)) {
+            entries.clear();
+            path = currentPath;
+        }
+    }
+
+    private String currentPath() {
+        String value = context.getVar("PATH");
+        return value != null ? value : System.getenv("PATH");
+    }
+
+    private Entry lookup(String name) {
+        String currentPath = path;
+        if (currentPath == null) {
+            return null;
+        }
+
+        for (String directory : currentPath.split(File.pathSeparator, -1)) {
+            Path directoryPath = Path.of(directory.isEmpty() ? "." : directory);
+            Path candidate = directoryPath.resolve(name);
+            if (Files.isRegularFile(candidate) && Files.isExecutable(candidate)) {
+                Entry entry = new Entry(candidate.toAbsolutePath().toString(), directoryPath, lastModified(directoryPath));
+                entries.put(name, entry);
+                return entry;
+            }
+        }
+        entries.remove(name);
+        return null;
+    }
+
+    private static FileTime lastModified(Path directory) {
+        try {
+            return Files.getLastModifiedTime(directory);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static class Entry {
+        private final String executable;
+        private final Path directory;
+        private final FileTime modified;
+        private final LongAdder hits = new LongAdder();
+
+        Entry(String executable, Path directory, FileTime modified) {
+            this.executable = executable;
+            this.directory = directory;
+            this.modified = modified;
+        }
+
+        boolean isValid() {
+            return modified != null && modified.equals(lastModified(directory));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package io.cli.command.impl.external;
+
+import io.cli.command.Command;
+
+public interface ProcessCommand extends Command {
+    void redirectInput(ProcessBuilder.Redirect redirect);
+
+    void redirectOutput(ProcessBuilder.Redirect redirect);
+
+    void redirectError(ProcessBuilder.Redirect redirect);
+
+    void redirectErrorStream(boolean redirectErrorStream);
+
+    // Makes the next run sample the CPU time of its processes while they run
+    void sampleCpuTime();
+
+    // The CPU time of the processes of the last sampled run, -1 when unknown
+    long getCpuNanos();
+}
@@ -0,0 +1,179 @@
+package io.cli.command.impl.external;
+
+import io.cli.command.impl.external.StreamPump.Pump;
+import io.cli.event.SpawnEvent;
+import io.cli.metrics.Metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class ProcessRunner {
+    static final int TERMINATED_STATUS = 128 + 15;
+    static final int KILLED_STATUS = 128 + 9;
+    static final int BROKEN_PIPE_STATUS = 128 + 13;
+    // How often the CPU time of running processes is sampled, the last interval before a process exits is lost
+    static final long CPU_SAMPLE_INTERVAL_MILLIS = 10;
+
+    private ProcessRunner() {
+    }
+
+    // Fills statuses with the exit code of every process and returns the one of the last process. The input is the
+    // JVM's own stdin if standardInput is set.
+    static int run(StreamPump streamPump,
+                   Metrics metrics,
+                   List<ProcessBuilder> processBuilders,
+                   InputStream inputStream,
+                   OutputStream outputStream,
+                   OutputStream errorStream,
+                   boolean standardInput,
+                   int[] statuses
+    ) {
+        return run(streamPump, metrics, processBuilders, inputStream, outputStream, errorStream, standardInput,
+                statuses, null);
+    }
+
+    // Also fills cpuNanos, if given, with the CPU time of every process as last sampled, -1 if it never was
+    static int run(StreamPump streamPump,
+                   Metrics metrics,
+                   List<ProcessBuilder> processBuilders,
+                   InputStream inputStream,
+                   OutputStream outputStream,
+                   OutputStream errorStream,
+                   boolean standardInput,
+                   int[] statuses,
+                   long[] cpuNanos
+    ) {
+        Arrays.fill(statuses, 1);
+        if (cpuNanos != null) {
+            Arrays.fill(cpuNanos, -1);
+        }
+        if (standardInput && isPiped(processBuilders.getFirst().redirectInput())) {
+            // A blocked read of the JVM's stdin cannot be interrupted, so the process reads fd 0 itself
+            processBuilders.getFirst().redirectInput(ProcessBuilder.Redirect.INHERIT);
+        }
+        List<Process> processes;
+        SpawnEvent event = new SpawnEvent();
+        event.begin();
+        long startNanos = System.nanoTime();
+        try {
+            // Consecutive processes are connected by OS pipes, only both ends of the pipeline pass through the JVM
+            processes = ProcessBuilder.startPipeline(processBuilders);
+        } catch (IOException e) {
+            return 1;
+        }
+        if (metrics != null) {
+            metrics.record(Metrics.Kind.SPAWN, commandName(processBuilders.getFirst()), System.nanoTime() - startNanos);
+            metrics.addSpawnedProcesses(processes.size());
+        }
+        if (event.shouldCommit()) {
+            event.command = String.join(" ", processBuilders.getFirst().command());
+            event.processes = processes.size();
+            event.pid = processes.getFirst().pid();
+            event.commit();
+        }
+
+        // Redirected streams are connected by the OS, there is nothing to transfer for them
+        Pump inputPump = null;
+        if (isPiped(processBuilders.getFirst().redirectInput())) {
+            OutputStream processInput = processes.getFirst().getOutputStream();
+            inputPump = streamPump.start(inputStream, processInput, processInput);
+        }
+
+        AtomicBoolean brokenPipe = new AtomicBoolean();
+        List<Pump> outputPumps = new ArrayList<>(processes.size() + 1);
+        if (isPiped(processBuilders.getLast().redirectOutput())) {
+            InputStream processOutput = processes.getLast().getInputStream();
+            outputPumps.add(streamPump.start(processOutput, outputStream, processOutput, () -> {
+                // Nobody reads the output any more: like SIGPIPE would, stop the processes instead of waiting for them
+                brokenPipe.set(true);
+                ProcessTree.terminate(processes, ProcessTree.DEFAULT_GRACE);
+            }));
+        }
+        for (int i = 0; i < processes.size(); i++) {
+            ProcessBuilder processBuilder = processBuilders.get(i);
+            if (!processBuilder.redirectErrorStream() && isPiped(processBuilder.redirectError())) {
+                InputStream processError = processes.get(i).getErrorStream();
+                outputPumps.add(streamPump.start(processError, errorStream, processError));
+            }
+        }
+
+        int waited = 0;
+        try {
+            for (; waited < processes.size(); waited++) {
+                // Unlike waitFor(), this parks a virtual thread instead of pinning its carrier until the process exits
+                statuses[waited] = awaitExit(processes, waited, cpuNanos).exitValue();
+            }
+        } catch (InterruptedException e) {
+            // The pipeline was cancelled, the processes and whatever they started must go with it
+            ProcessTree.terminate(processes, ProcessTree.DEFAULT_GRACE);
+            Arrays.fill(statuses, waited, statuses.length, TERMINATED_STATUS);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Arrays.fill(statuses, waited, statuses.length, 1);
+        } finally {
+            // The caller may close the output as soon as we return, so the process output must be fully drained
+            outputPumps.forEach(Pump::await);
+            if (inputPump != null) {
+                // Nobody consumes the rest of the input once the process is gone
+                inputPump.cancel();
+                inputPump.await();
+            }
+        }
+        if (brokenPipe.get()) {
+            // The processes we stopped are reported as if SIGPIPE had stopped them
+            for (int i = 0; i < statuses.length; i++) {
+                if (statuses[i] == TERMINATED_STATUS || statuses[i] == KILLED_STATUS) {
+                    statuses[i] = BROKEN_PIPE_STATUS;
+                }
+            }
+        }
+        return statuses[statuses.length - 1];
+    }
+
+    private static Process awaitExit(List<Process> processes, int index, long[] cpuNanos)
+            throws InterruptedException, ExecutionException {
+        CompletableFuture<Process> exit = processes.get(index).onExit();
+        if (cpuNanos == null) {
+            return exit.get();
+        }
+        // Once the JDK reaps a process its CPU time is gone, it can only be read while the process still runs
+        while (true) {
+            sampleCpu(processes, cpuNanos);
+            try {
+                return exit.get(CPU_SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Still running
+            }
+        }
+    }
+
+    private static void sampleCpu(List<Process> processes, long[] cpuNanos) {
+        for (int i = 0; i < processes.size(); i++) {
+            Optional<Duration> cpu = processes.get(i).info().totalCpuDuration();
+            if (cpu.isPresent()) {
+                cpuNanos[i] = Math.max(cpuNanos[i], cpu.get().toNanos());
+            }
+        }
+    }
+
+    // Executables found on PATH are started by their full path, only the file name tells commands apart
+    private static String commandName(ProcessBuilder processBuilder) {
+        String executable = processBuilder.command().getFirst();
+        return executable.substring(executable.lastIndexOf('/') + 1);
+    }
+
+    private static boolean isPiped(ProcessBuilder.Redirect redirect) {
+        return redirect.type() == ProcessBuilder.Redirect.Type.PIPE;
+    }
+}
@@ -0,0 +1,55 @@
+package io.cli.command.impl.external;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Stops processes together with everything they started, so that a cancelled {@code sh -c 'sleep 30 & sleep 30'}
+ * leaves nothing behind.
+ */
+class ProcessTree {
+    static final Duration DEFAULT_GRACE = Duration.ofSeconds(2);
+
+    private ProcessTree() {
+    }
+
+    /**
+     * Asks every process of the trees to terminate, then kills those still alive after {@code grace}.
+     * Does not wait for the forcibly killed processes.
+     */
+    static void terminate(List<Process> processes, Duration grace) {
+        // The descendants are collected first, once their parent is gone they are reparented and cannot be found
+        Set<ProcessHandle> handles = new LinkedHashSet<>();
+        for (Process process : processes) {
+            process.descendants().forEach(handles::add);
+            handles.add(process.toHandle());
+        }
+        handles.forEach(ProcessHandle::destroy);
+
+        long deadline = System.nanoTime() + grace.toNanos();
+        List<ProcessHandle> survivors = new ArrayList<>();
+        for (ProcessHandle handle : handles) {
+            long remaining = deadline - System.nanoTime();
+            try {
+                if (remaining <= 0) {
+                    throw new TimeoutException();
+                }
+                handle.onExit().get(remaining, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                survivors.add(handle);
+            } catch (InterruptedException e) {
+                // Interrupted again, there is no time left for a graceful exit
+                Thread.currentThread().interrupt();
+                deadline = System.nanoTime();
+                survivors.add(handle);
+            }
+        }
+        survivors.forEach(ProcessHandle::destroyForcibly);
+    }
+}
@@ -0,0 +1,110 @@
+package io.cli.command.impl.external;
+
+import io.cli.event.PumpEvent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StreamPump {
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_BUFFER_SIZE = 64 * 1024;
+
+    private final ThreadFactory threadFactory = Thread.ofVirtual().name("stream-pump-", 0).factory();
+    private final AtomicInteger activePumps = new AtomicInteger();
+
+    public Pump start(InputStream source, OutputStream destination, Closeable owned) {
+        return start(source, destination, owned, null);
+    }
+
+    /**
+     * Like {@link #start(InputStream, OutputStream, Closeable)}, and runs {@code onBrokenPipe} once {@code owned}
+     * is closed if the transfer stopped because the destination refused a write.
+     */
+    public Pump start(InputStream source, OutputStream destination, Closeable owned, Runnable onBrokenPipe) {
+        activePumps.incrementAndGet();
+        Thread thread = threadFactory.newThread(() -> {
+            PumpEvent event = new PumpEvent();
+            event.begin();
+            boolean brokenPipe = false;
+            try (owned) {
+                brokenPipe = !transfer(source, destination, event);
+            } catch (IOException ignored) {
+                // One side of the transfer is gone, there is nobody left to deliver the rest to
+            } finally {
+                activePumps.decrementAndGet();
+            }
+            event.brokenPipe = brokenPipe;
+            event.commit();
+            if (brokenPipe && onBrokenPipe != null) {
+                onBrokenPipe.run();
+            }
+        });
+        thread.start();
+        return new Pump(thread);
+    }
+
+    public int getActivePumps() {
+        return activePumps.get();
+    }
+
+    // Returns false if the destination stopped accepting data, failures of the source are thrown
+    private static boolean transfer(InputStream source, OutputStream destination, PumpEvent event) throws IOException {
+        byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+        int bytesRead;
+        while ((bytesRead = source.read(buffer)) != -1) {
+            try {
+                destination.write(buffer, 0, bytesRead);
+                event.bytes += bytesRead;
+                // Hand the data over as soon as the source pauses, but not after every chunk of a bulk transfer
+                if (source.available() == 0) {
+                    destination.flush();
+                }
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                return false;
+            }
+            if (bytesRead == buffer.length && buffer.length < MAX_BUFFER_SIZE) {
+                buffer = new byte[buffer.length * 2];
+            }
+        }
+        try {
+            destination.flush();
+        } catch (IOException e) {
+            return false;
+        }
+        return true;
+    }
+
+    public static class Pump {
+        private final Thread thread;
+
+        private Pump(Thread thread) {
+            this.thread = thread;
+        }
+
+        public void cancel() {
+            thread.interrupt();
+        }
+
+        public void await() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
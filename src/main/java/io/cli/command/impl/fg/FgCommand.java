@@ -0,0 +1,77 @@
+package io.cli.command.impl.fg;
+
+import io.cli.command.BufferCommand;
+import io.cli.command.BufferSink;
+import io.cli.command.BuiltinOutput;
+import io.cli.job.Job;
+import io.cli.job.JobTable;
+import io.cli.parser.token.Token;
+import io.cli.session.Session;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Optional;
+
+public class FgCommand implements BufferCommand {
+    private final Session session;
+    private final JobTable jobTable;
+    private final List<Token> args;
+
+    private InputStream inputStream;
+    private OutputStream outputStream;
+    private BufferSink bufferSink;
+    private PrintStream errorStream;
+
+    public FgCommand(Session session, JobTable jobTable, List<Token> args) {
+        this.session = session;
+        this.jobTable = jobTable;
+        this.args = args;
+        inputStream = session.getIn();
+        outputStream = session.getOut();
+        errorStream = session.getErr();
+    }
+
+    @Override
+    public int execute() {
+        Optional<Job> job = args.size() > 1 ? jobTable.find(args.get(1).getInput()) : jobTable.getCurrent();
+        if (job.isEmpty()) {
+            errorStream.println(args.size() > 1 ? "fg: " + args.get(1).getInput() + ": no such job" : "fg: no current job");
+            return 1;
+        }
+
+        BuiltinOutput output = new BuiltinOutput(outputStream, bufferSink, session.isConsole(outputStream));
+        output.println(job.get().getCommand());
+        // The command is shown before the wait, not after it
+        output.flush();
+        try {
+            int exitCode = job.get().await();
+            jobTable.remove(job.get());
+            return exitCode;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 130;
+        }
+    }
+
+    @Override
+    public void setInputStream(InputStream newInputStream) {
+        inputStream = newInputStream;
+    }
+
+    @Override
+    public void setOutputStream(OutputStream newOutputStream) {
+        outputStream = newOutputStream;
+    }
+
+    @Override
+    public void setErrorStream(OutputStream newErrorStream) {
+        errorStream = BuiltinOutput.printStream(newErrorStream);
+    }
+
+    @Override
+    public void setBufferSink(BufferSink sink) {
+        bufferSink = sink;
+    }
+}
@@ -0,0 +1,95 @@
+package io.cli.command.impl.hash;
+
+import io.cli.command.BufferCommand;
+import io.cli.command.BufferSink;
+import io.cli.command.BuiltinOutput;
+import io.cli.command.impl.external.PathCache;
+import io.cli.parser.token.Token;
+import io.cli.session.Session;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+
+public class HashCommand implements BufferCommand {
+    private final Session session;
+    private final PathCache pathCache;
+    private final List<Token> args;
+
+    private InputStream inputStream;
+    private OutputStream outputStream;
+    private BufferSink bufferSink;
+    private PrintStream errorStream;
+
+    public HashCommand(Session session, PathCache pathCache, List<Token> args) {
+        this.session = session;
+        this.pathCache = pathCache;
+        this.args = args;
+        inputStream = session.getIn();
+        outputStream = session.getOut();
+        errorStream = session.getErr();
+    }
+
+    @Override
+    public int execute() {
+        BuiltinOutput output = new BuiltinOutput(outputStream, bufferSink, session.isConsole(outputStream));
+        int exitCode = 0;
+        if (args.size() == 1) {
+            printEntries(output);
+        }
+        for (int i = 1; i < args.size(); i++) {
+            String arg = args.get(i).getInput();
+            switch (arg) {
+                case "-r" -> pathCache.clear();
+                case "-s" -> printStatistics(output);
+                default -> {
+                    if (pathCache.prefill(arg).isEmpty()) {
+                        errorStream.println("hash: " + arg + ": not found");
+                        exitCode = 1;
+                    }
+                }
+            }
+        }
+        return output.checkError() ? 1 : exitCode;
+    }
+
+    private void printEntries(BuiltinOutput output) {
+        Map<String, Long> entries = pathCache.getEntries();
+        if (entries.isEmpty()) {
+            output.println("hash: hash table empty");
+            return;
+        }
+        output.println("hits\tcommand");
+        entries.forEach((executable, hits) -> output.printf("%4d\t%s%n", hits, executable));
+    }
+
+    private void printStatistics(BuiltinOutput output) {
+        long hits = pathCache.getHits();
+        long misses = pathCache.getMisses();
+        long lookups = hits + misses;
+        double hitRate = lookups == 0 ? 0 : 100.0 * hits / lookups;
+        output.printf("hits %d, misses %d, hit rate %.1f%%%n", hits, misses, hitRate);
+    }
+
+    @Override
+    public void setInputStream(InputStream newInputStream) {
+        inputStream = newInputStream;
+    }
+
+    @Override
+    public void setOutputStream(OutputStream newOutputStream) {
+        outputStream = newOutputStream;
+    }
+
+    @Override
+    public void setErrorStream(OutputStream newErrorStream) {
+        errorStream = BuiltinOutput.printStream(newErrorStream);
+    }
+
+    @Override
+    public void setBufferSink(BufferSink sink) {
+        bufferSink = sink;
+    }
+}
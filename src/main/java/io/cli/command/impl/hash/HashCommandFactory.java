@@ -0,0 +1,38 @@
+package io.cli.command.impl.hash;
+
+import io.cli.command.Command;
+import io.cli.command.CommandFactory;
+import io.cli.command.impl.external.PathCache;
+import io.cli.parser.token.Token;
+import io.cli.session.Session;
+
+import java.util.List;
+import java.util.Optional;
+
+public class HashCommandFactory implements CommandFactory {
+    private final Session session;
+    private final PathCache pathCache;
+
+    public HashCommandFactory(Session session, PathCache pathCache) {
+        this.session = session;
+        this.pathCache = pathCache;
+    }
+
+    private static boolean checkArgs(List<Token> args) {
+        if (args.isEmpty()) {
+            return false;
+        }
+
+        return args.getFirst().getInput().equals("hash");
+    }
+
+    @Override
+    public Optional<Command> newCommand(List<Token> args) {
+        if (!checkArgs(args)) {
+            return Optional.empty();
+        }
+
+        Command command = new HashCommand(session, pathCache, args);
+        return Optional.of(command);
+    }
+}
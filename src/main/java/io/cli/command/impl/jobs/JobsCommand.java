@@ -0,0 +1,59 @@
+package io.cli.command.impl.jobs;
+
+import io.cli.command.BufferCommand;
+import io.cli.command.BufferSink;
+import io.cli.command.BuiltinOutput;
+import io.cli.job.Job;
+import io.cli.job.JobTable;
+import io.cli.parser.token.Token;
+import io.cli.session.Session;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+public class JobsCommand implements BufferCommand {
+    private final Session session;
+    private final JobTable jobTable;
+    private final List<Token> args;
+
+    private InputStream inputStream;
+    private OutputStream outputStream;
+    private BufferSink bufferSink;
+
+    public JobsCommand(Session session, JobTable jobTable, List<Token> args) {
+        this.session = session;
+        this.jobTable = jobTable;
+        this.args = args;
+        inputStream = session.getIn();
+        outputStream = session.getOut();
+    }
+
+    @Override
+    public int execute() {
+        BuiltinOutput output = new BuiltinOutput(outputStream, bufferSink, session.isConsole(outputStream));
+        for (Job job : jobTable.getJobs()) {
+            output.printf("[%d] %s\t%s%n", job.getId(), job.describeState(), job.getCommand());
+            // Like in bash, a finished job is listed once
+            if (job.isDone()) {
+                jobTable.remove(job);
+            }
+        }
+        return output.checkError() ? 1 : 0;
+    }
+
+    @Override
+    public void setInputStream(InputStream newInputStream) {
+        inputStream = newInputStream;
+    }
+
+    @Override
+    public void setOutputStream(OutputStream newOutputStream) {
+        outputStream = newOutputStream;
+    }
+
+    @Override
+    public void setBufferSink(BufferSink sink) {
+        bufferSink = sink;
+    }
+}
@@ -0,0 +1,38 @@
+package io.cli.command.impl.jobs;
+
+import io.cli.command.Command;
+import io.cli.command.CommandFactory;
+import io.cli.job.JobTable;
+import io.cli.parser.token.Token;
+import io.cli.session.Session;
+
+import java.util.List;
+import java.util.Optional;
+
+public class JobsCommandFactory implements CommandFactory {
+    private final Session session;
+    private final JobTable jobTable;
+
+    public JobsCommandFactory(Session session, JobTable jobTable) {
+        this.session = session;
+        this.jobTable = jobTable;
+    }
+
+    private static boolean checkArgs(List<Token> args) {
+        if (args.isEmpty()) {
+            return false;
+        }
+
+        return args.getFirst().getInput().equals("jobs");
+    }
+
+    @Override
+    public Optional<Command> newCommand(List<Token> args) {
+        if (!checkArgs(args)) {
+            return Optional.empty();
+        }
+
+        Command command = new JobsCommand(session, jobTable, args);
+        return Optional.of(command);
+    }
+}
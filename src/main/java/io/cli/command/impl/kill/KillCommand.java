@@ -0,0 +1,66 @@
+package io.cli.command.impl.kill;
+
+import io.cli.command.BuiltinOutput;
+import io.cli.command.Command;
+import io.cli.job.Job;
+import io.cli.job.JobTable;
+import io.cli.parser.token.Token;
+import io.cli.session.Session;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Optional;
+
+public class KillCommand implements Command {
+    private final JobTable jobTable;
+    private final List<Token> args;
+
+    private InputStream inputStream;
+    private OutputStream outputStream;
+    private PrintStream errorStream;
+
+    public KillCommand(Session session, JobTable jobTable, List<Token> args) {
+        this.jobTable = jobTable;
+        this.args = args;
+        inputStream = session.getIn();
+        outputStream = session.getOut();
+        errorStream = session.getErr();
+    }
+
+    @Override
+    public int execute() {
+        if (args.size() == 1) {
+            errorStream.println("kill: usage: kill %job...");
+            return 2;
+        }
+
+        int exitCode = 0;
+        for (int i = 1; i < args.size(); i++) {
+            Optional<Job> job = jobTable.find(args.get(i).getInput());
+            if (job.isEmpty()) {
+                errorStream.println("kill: " + args.get(i).getInput() + ": no such job");
+                exitCode = 1;
+                continue;
+            }
+            job.get().kill();
+        }
+        return exitCode;
+    }
+
+    @Override
+    public void setInputStream(InputStream newInputStream) {
+        inputStream = newInputStream;
+    }
+
+    @Override
+    public void setOutputStream(OutputStream newOutputStream) {
+        outputStream = newOutputStream;
+    }
+
+    @Override
+    public void setErrorStream(OutputStream newErrorStream) {
+        errorStream = BuiltinOutput.printStream(newErrorStream);
+    }
+}
@@ -1,31 +1,36 @@
 package io.cli.command.impl.pwd;
 
-import io.cli.command.Command;
+import io.cli.command.BufferCommand;
+import io.cli.command.BufferSink;
+import io.cli.command.BuiltinOutput;
 import io.cli.exception.ExitException;
 import io.cli.parser.token.Token;
+import io.cli.session.Session;
 
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PrintWriter;
 import java.util.List;
 
-public class PwdCommand implements Command {
+public class PwdCommand implements BufferCommand {
+    private final Session session;
     private final List<Token> args;
 
-    private InputStream inputStream = System.in;
-    private OutputStream outputStream = System.out;
+    private InputStream inputStream;
+    private OutputStream outputStream;
+    private BufferSink bufferSink;
 
-    public PwdCommand(List<Token> args) {
+    public PwdCommand(Session session, List<Token> args) {
+        this.session = session;
         this.args = args;
+        inputStream = session.getIn();
+        outputStream = session.getOut();
     }
 
     @Override
     public int execute() {
-        PrintWriter printWriter = new PrintWriter(outputStream);
-        String currentDirectory = System.getProperty("user.dir");
-        printWriter.println(currentDirectory);
-        printWriter.flush();
-        return 0;
+        BuiltinOutput output = new BuiltinOutput(outputStream, bufferSink, session.isConsole(outputStream));
+        output.println(session.getWorkingDirectory().toString());
+        return output.checkError() ? 1 : 0;
     }
 
     @Override
@@ -37,4 +42,9 @@ public class PwdCommand implements Command {
     public void setOutputStream(OutputStream newOutputStream) {
         outputStream = newOutputStream;
     }
+
+    @Override
+    public void setBufferSink(BufferSink sink) {
+        bufferSink = sink;
+    }
 }
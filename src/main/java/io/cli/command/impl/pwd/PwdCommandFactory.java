@@ -3,12 +3,16 @@ package io.cli.command.impl.pwd;
 import io.cli.command.Command;
 import io.cli.command.CommandFactory;
 import io.cli.parser.token.Token;
+import io.cli.session.Session;
 
 import java.util.List;
 import java.util.Optional;
 
 public class PwdCommandFactory implements CommandFactory {
-    public PwdCommandFactory() {
+    private final Session session;
+
+    public PwdCommandFactory(Session session) {
+        this.session = session;
     }
 
     private static boolean checkArgs(List<Token> args) {
@@ -25,7 +29,7 @@ public class PwdCommandFactory implements CommandFactory {
             return Optional.empty();
         }
 
-        Command command = new PwdCommand(args);
+        Command command = new PwdCommand(session, args);
         return Optional.of(command);
     }
 }
@@ -0,0 +1,125 @@
+package io.cli.command.impl.stats;
+
+import io.cli.command.BufferCommand;
+import io.cli.command.BufferSink;
+import io.cli.command.BuiltinOutput;
+import io.cli.metrics.LatencyHistogram;
+import io.cli.metrics.Metrics;
+import io.cli.metrics.PrometheusFormat;
+import io.cli.parser.token.Token;
+import io.cli.session.Session;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prints the latency percentiles and counters of the session. {@code -p} prints them in the Prometheus text
+ * format instead, {@code -r} resets them.
+ */
+public class StatsCommand implements BufferCommand {
+    private final Session session;
+    private final Metrics metrics;
+    private final List<Token> args;
+
+    private InputStream inputStream;
+    private OutputStream outputStream;
+    private BufferSink bufferSink;
+    private PrintStream errorStream;
+
+    public StatsCommand(Session session, Metrics metrics, List<Token> args) {
+        this.session = session;
+        this.metrics = metrics;
+        this.args = args;
+        inputStream = session.getIn();
+        outputStream = session.getOut();
+        errorStream = session.getErr();
+    }
+
+    @Override
+    public int execute() {
+        BuiltinOutput output = new BuiltinOutput(outputStream, bufferSink, session.isConsole(outputStream));
+        if (args.size() == 1) {
+            printStatistics(output);
+        }
+        for (int i = 1; i < args.size(); i++) {
+            String arg = args.get(i).getInput();
+            switch (arg) {
+                case "-r" -> metrics.reset();
+                case "-p" -> output.print(PrometheusFormat.format(metrics));
+                default -> {
+                    errorStream.println("stats: " + arg + ": invalid option");
+                    errorStream.println("stats: usage: stats [-p] [-r]");
+                    return 2;
+                }
+            }
+        }
+        return output.checkError() ? 1 : 0;
+    }
+
+    private void printStatistics(BuiltinOutput output) {
+        output.printf("%-9s %-20s %8s %9s %9s %9s %9s%n", "", "command", "count", "p50", "p99", "p999", "max");
+        for (Metrics.Kind kind : Metrics.Kind.values()) {
+            Map<String, LatencyHistogram> histograms = metrics.getHistograms(kind);
+            if (histograms.isEmpty()) {
+                continue;
+            }
+            LatencyHistogram total = new LatencyHistogram();
+            histograms.forEach((command, histogram) -> {
+                printHistogram(output, kind.getLabel(), command, histogram);
+                total.add(histogram);
+            });
+            if (histograms.size() > 1) {
+                printHistogram(output, kind.getLabel(), "(all)", total);
+            }
+        }
+        output.printf("piped %d bytes, spawned %d processes, %d failures%n",
+                metrics.getPipedBytes(), metrics.getSpawnedProcesses(), metrics.getFailures());
+    }
+
+    private static void printHistogram(BuiltinOutput output, String kind, String command, LatencyHistogram histogram) {
+        output.printf("%-9s %-20s %8d %9s %9s %9s %9s%n",
+                kind,
+                command,
+                histogram.getCount(),
+                formatNanos(histogram.percentile(0.5)),
+                formatNanos(histogram.percentile(0.99)),
+                formatNanos(histogram.percentile(0.999)),
+                formatNanos(histogram.getMaxNanos()));
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + "ns";
+        }
+        if (nanos < 1_000_000) {
+            return String.format("%.1fus", nanos / 1e3);
+        }
+        if (nanos < 1_000_000_000) {
+            return String.format("%.2fms", nanos / 1e6);
+        }
+        return String.format("%.2fs", nanos / 1e9);
+    }
+
+    @Override
+    public void setInputStream(InputStream newInputStream) {
+        inputStream = newInputStream;
+    }
+
+    @Override
+    public void setOutputStream(OutputStream newOutputStream) {
+        outputStream = newOutputStream;
+    }
+
+    @Override
+    public void setErrorStream(OutputStream newErrorStream) {
+        errorStream = BuiltinOutput.printStream(newErrorStream);
+    }
+
+    @Override
+    public void setBufferSink(BufferSink sink) {
+        bufferSink = sink;
+    }
+}
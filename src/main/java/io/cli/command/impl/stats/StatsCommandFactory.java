@@ -0,0 +1,38 @@
+package io.cli.command.impl.stats;
+
+import io.cli.command.Command;
+import io.cli.command.CommandFactory;
+import io.cli.metrics.Metrics;
+import io.cli.parser.token.Token;
+import io.cli.session.Session;
+
+import java.util.List;
+import java.util.Optional;
+
+public class StatsCommandFactory implements CommandFactory {
+    private final Session session;
+    private final Metrics metrics;
+
+    public StatsCommandFactory(Session session, Metrics metrics) {
+        this.session = session;
+        this.metrics = metrics;
+    }
+
+    private static boolean checkArgs(List<Token> args) {
+        if (args.isEmpty()) {
+            return false;
+        }
+
+        return args.getFirst().getInput().equals("stats");
+    }
+
+    @Override
+    public Optional<Command> newCommand(List<Token> args) {
+        if (!checkArgs(args)) {
+            return Optional.empty();
+        }
+
+        Command command = new StatsCommand(session, metrics, args);
+        return Optional.of(command);
+    }
+}
@@ -0,0 +1,75 @@
+package io.cli.command.impl.wait;
+
+import io.cli.command.BuiltinOutput;
+import io.cli.command.Command;
+import io.cli.job.Job;
+import io.cli.job.JobTable;
+import io.cli.parser.token.Token;
+import io.cli.session.Session;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Optional;
+
+public class WaitCommand implements Command {
+    private final JobTable jobTable;
+    private final List<Token> args;
+
+    private InputStream inputStream;
+    private OutputStream outputStream;
+    private PrintStream errorStream;
+
+    public WaitCommand(Session session, JobTable jobTable, List<Token> args) {
+        this.jobTable = jobTable;
+        this.args = args;
+        inputStream = session.getIn();
+        outputStream = session.getOut();
+        errorStream = session.getErr();
+    }
+
+    @Override
+    public int execute() {
+        try {
+            if (args.size() == 1) {
+                for (Job job : jobTable.getJobs()) {
+                    job.await();
+                    jobTable.remove(job);
+                }
+                return 0;
+            }
+
+            int exitCode = 0;
+            for (int i = 1; i < args.size(); i++) {
+                Optional<Job> job = jobTable.find(args.get(i).getInput());
+                if (job.isEmpty()) {
+                    errorStream.println("wait: " + args.get(i).getInput() + ": no such job");
+                    exitCode = 127;
+                    continue;
+                }
+                exitCode = job.get().await();
+                jobTable.remove(job.get());
+            }
+            return exitCode;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 130;
+        }
+    }
+
+    @Override
+    public void setInputStream(InputStream newInputStream) {
+        inputStream = newInputStream;
+    }
+
+    @Override
+    public void setOutputStream(OutputStream newOutputStream) {
+        outputStream = newOutputStream;
+    }
+
+    @Override
+    public void setErrorStream(OutputStream newErrorStream) {
+        errorStream = BuiltinOutput.printStream(newErrorStream);
+    }
+}
@@ -0,0 +1,38 @@
+package io.cli.command.impl.wait;
+
+import io.cli.command.Command;
+import io.cli.command.CommandFactory;
+import io.cli.job.JobTable;
+import io.cli.parser.token.Token;
+import io.cli.session.Session;
+
+import java.util.List;
+import java.util.Optional;
+
+public class WaitCommandFactory implements CommandFactory {
+    private final Session session;
+    private final JobTable jobTable;
+
+    public WaitCommandFactory(Session session, JobTable jobTable) {
+        this.session = session;
+        this.jobTable = jobTable;
+    }
+
+    private static boolean checkArgs(List<Token> args) {
+        if (args.isEmpty()) {
+            return false;
+        }
+
+        return args.getFirst().getInput().equals("wait");
+    }
+
+    @Override
+    public Optional<Command> newCommand(List<Token> args) {
+        if (!checkArgs(args)) {
+            return Optional.empty();
+        }
+
+        Command command = new WaitCommand(session, jobTable, args);
+        return Optional.of(command);
+    }
+}
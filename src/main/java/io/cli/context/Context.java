@@ -1,25 +1,207 @@
 package io.cli.context;
 
-import java.util.Collections;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Shell variables, safe to read and write from any thread.
+ * <p>
+ * Variables live in a chain of frozen layers with a mutable layer on top. {@link #fork()} freezes the top layer and
+ * gives the fork and this context a new empty top layer each, so forking copies nothing and both sides are isolated
+ * from then on. Changes made in a fork only reach its parent through {@link #publish()}.
+ */
 public class Context {
-    private final Map<String, String> envVars = new HashMap<>();
+    // The working directory of the shell, see Session
+    public static final String WORKING_DIRECTORY_VARIABLE = "PWD";
+    // Longer chains are flattened when forking, so a lookup never walks more than this many layers
+    private static final int MAX_DEPTH = 8;
+
+    private final Context parent;
+    private final Object writeLock = new Object();
+    private final Set<String> changedVars = ConcurrentHashMap.newKeySet();
+    private final AtomicLong version;
+
+    private volatile State state;
+    private volatile boolean environmentChanged;
+    private volatile Map<String, String> environment;
 
     public Context() {
-        setVar("?", "0");
+        this.parent = null;
+        this.version = new AtomicLong();
+        this.state = new State(null, new ConcurrentHashMap<>());
+        this.environmentChanged = false;
+        this.environment = Map.of();
+        setVar("?", "0", false);
+    }
+
+    private Context(Context parent, Layer base, long version, boolean environmentChanged, Map<String, String> environment) {
+        this.parent = parent;
+        this.version = new AtomicLong(version);
+        this.state = new State(base, new ConcurrentHashMap<>());
+        this.environmentChanged = environmentChanged;
+        this.environment = environment;
     }
 
+    /**
+     * The exported variables, to be added to the environment of child processes.
+     * The map is immutable and is only rebuilt after an exported variable changes.
+     */
     public Map<String, String> getEnvironment() {
-        return Collections.unmodifiableMap(envVars);
+        if (!environmentChanged) {
+            return environment;
+        }
+        synchronized (writeLock) {
+            if (environmentChanged) {
+                Map<String, String> exported = new HashMap<>();
+                flatten(state).forEach((key, var) -> {
+                    if (var.exported) {
+                        exported.put(key, var.value);
+                    }
+                });
+                environment = Map.copyOf(exported);
+                environmentChanged = false;
+            }
+            return environment;
+        }
     }
 
     public String getVar(String key) {
-        return envVars.get(key);
+        Var var = state.get(key);
+        return var == null ? null : var.value;
     }
 
+    // A new variable is exported, an existing one keeps its flag
     public void setVar(String key, String value) {
-        envVars.put(key, value);
+        synchronized (writeLock) {
+            Var previous = state.get(key);
+            put(key, new Var(value, previous == null || previous.exported), previous);
+        }
+    }
+
+    public void setVar(String key, String value, boolean exported) {
+        synchronized (writeLock) {
+            put(key, new Var(value, exported), state.get(key));
+        }
+    }
+
+    public boolean isExported(String key) {
+        Var var = state.get(key);
+        return var != null && var.exported;
+    }
+
+    // Grows on every change of a variable, exported or not
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * An isolated copy of this context for a subshell, a pipeline stage or a background job.
+     * Takes constant time however many variables there are.
+     */
+    public Context fork() {
+        synchronized (writeLock) {
+            State current = state;
+            Layer base = current.overlay.isEmpty() ? current.base : new Layer(current.overlay, current.base);
+            if (base != null && base.depth > MAX_DEPTH) {
+                base = new Layer(flatten(new State(base, Map.of())), null);
+            }
+            // The old top layer is frozen from now on, both sides write to fresh ones
+            state = new State(base, new ConcurrentHashMap<>());
+            return new Context(this, base, version.get(), environmentChanged, environment);
+        }
+    }
+
+    // Copies the variables changed in this fork since the last publish into its parent
+    public void publish() {
+        if (parent == null) {
+            return;
+        }
+        for (String key : changedVars) {
+            changedVars.remove(key);
+            Var var = state.get(key);
+            synchronized (parent.writeLock) {
+                parent.put(key, var, parent.state.get(key));
+            }
+        }
+    }
+
+    private void put(String key, Var var, Var previous) {
+        state.overlay.put(key, var);
+        changedVars.add(key);
+        if (var.exported ? !var.equals(previous) : previous != null && previous.exported) {
+            environmentChanged = true;
+        }
+        version.incrementAndGet();
+    }
+
+    private static Map<String, Var> flatten(State state) {
+        Deque<Layer> layers = new ArrayDeque<>();
+        for (Layer layer = state.base; layer != null; layer = layer.parent) {
+            layers.push(layer);
+        }
+        Map<String, Var> result = new HashMap<>();
+        for (Layer layer : layers) {
+            result.putAll(layer.vars);
+        }
+        result.putAll(state.overlay);
+        return result;
+    }
+
+    private static class State {
+        private final Layer base;
+        private final Map<String, Var> overlay;
+
+        State(Layer base, Map<String, Var> overlay) {
+            this.base = base;
+            this.overlay = overlay;
+        }
+
+        Var get(String key) {
+            Var var = overlay.get(key);
+            for (Layer layer = base; var == null && layer != null; layer = layer.parent) {
+                var = layer.vars.get(key);
+            }
+            return var;
+        }
+    }
+
+    private static class Layer {
+        private final Map<String, Var> vars;
+        private final Layer parent;
+        private final int depth;
+
+        Layer(Map<String, Var> vars, Layer parent) {
+            this.vars = vars;
+            this.parent = parent;
+            this.depth = parent == null ? 1 : parent.depth + 1;
+        }
+    }
+
+    private static class Var {
+        private final String value;
+        private final boolean exported;
+
+        Var(String value, boolean exported) {
+            this.value = value;
+            this.exported = exported;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            Var var = (Var) obj;
+            return exported == var.exported && value.equals(var.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode() * 31 + Boolean.hashCode(exported);
+        }
     }
 }
@@ -0,0 +1,22 @@
+package io.cli.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.cli.Dispatch")
+@Label("Dispatch")
+@Category({"CLI", "Executor"})
+@Description("The commands of a pipeline looked up and created from its plan")
+public class DispatchEvent extends Event {
+    @Label("Command")
+    public String command;
+
+    @Label("Stages")
+    public int stages;
+
+    @Label("Background")
+    public boolean background;
+}
@@ -0,0 +1,23 @@
+package io.cli.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.cli.Execute")
+@Label("Execute")
+@Category({"CLI", "Executor"})
+@Description("A pipeline run from its first stage starting to its last stage finishing")
+public class ExecuteEvent extends Event {
+    @Label("Stages")
+    @Description("Stages actually run, after adjacent processes were fused")
+    public int stages;
+
+    @Label("Exit Code")
+    public int exitCode;
+
+    @Label("Cancelled")
+    public boolean cancelled;
+}
@@ -0,0 +1,23 @@
+package io.cli.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.cli.Parse")
+@Label("Parse")
+@Category({"CLI", "Parser"})
+@Description("A line turned into tokens, or into templates for the plan cache")
+public class ParseEvent extends Event {
+    @Label("Length")
+    public int length;
+
+    @Label("Stages")
+    public int stages;
+
+    @Label("Compiled")
+    @Description("Whether templates were compiled instead of substituting the variables")
+    public boolean compiled;
+}
@@ -0,0 +1,21 @@
+package io.cli.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.cli.Pump")
+@Label("Stream Pump")
+@Category({"CLI", "Process"})
+@Description("Bytes copied between a process and the shell by one pump thread, over its whole life")
+public class PumpEvent extends Event {
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Broken Pipe")
+    public boolean brokenPipe;
+}
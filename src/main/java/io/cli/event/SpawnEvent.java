@@ -0,0 +1,22 @@
+package io.cli.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.cli.Spawn")
+@Label("Spawn")
+@Category({"CLI", "Process"})
+@Description("External processes started for a stage, or for a run of fused stages")
+public class SpawnEvent extends Event {
+    @Label("Command")
+    public String command;
+
+    @Label("Processes")
+    public int processes;
+
+    @Label("First PID")
+    public long pid;
+}
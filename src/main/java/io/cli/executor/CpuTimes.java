@@ -0,0 +1,41 @@
+package io.cli.executor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * CPU time used by the whole shell process and its finished child processes, split into user and system time.
+ * <p>
+ * This is process-wide: it counts the JIT and the garbage collector, every session and background job of a daemon,
+ * and any child reaped meanwhile, not only the pipeline being timed. The processes of one pipeline are measured on
+ * their own by sampling them while they run, see {@link io.cli.command.impl.external.ProcessCommand#getCpuNanos()}.
+ * <p>
+ * On Linux both come from {@code /proc/self/stat}, which adds the children to the shell once they are reaped.
+ * Elsewhere only the total CPU time of the shell is known, from {@link ProcessHandle.Info}, and is counted as user
+ * time.
+ */
+record CpuTimes(long userNanos, long sysNanos, boolean split) {
+    private static final Path STAT = Path.of("/proc/self/stat");
+    // USER_HZ, the unit of the times in /proc, is 100 on every Linux architecture the JDK runs on
+    private static final long NANOS_PER_TICK = 1_000_000_000L / 100;
+
+    static CpuTimes now() {
+        try {
+            String stat = Files.readString(STAT);
+            // The command name may contain spaces, the fields are counted from its closing parenthesis
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            long user = Long.parseLong(fields[11]) + Long.parseLong(fields[13]);
+            long sys = Long.parseLong(fields[12]) + Long.parseLong(fields[14]);
+            return new CpuTimes(user * NANOS_PER_TICK, sys * NANOS_PER_TICK, true);
+        } catch (IOException | RuntimeException e) {
+            long total = ProcessHandle.current().info().totalCpuDuration().map(Duration::toNanos).orElse(0L);
+            return new CpuTimes(total, 0, false);
+        }
+    }
+
+    CpuTimes minus(CpuTimes start) {
+        return new CpuTimes(userNanos - start.userNanos, sysNanos - start.sysNanos, split && start.split);
+    }
+}
@@ -1,55 +1,527 @@
 package io.cli.executor;
 
+import io.cli.command.BufferCommand;
+import io.cli.command.BufferPool;
 import io.cli.command.Command;
+import io.cli.command.StreamBufferSink;
+import io.cli.command.StreamBufferSource;
+import io.cli.command.impl.external.ExternalCommand;
+import io.cli.command.impl.external.ExternalPipelineCommand;
+import io.cli.command.impl.external.ProcessCommand;
 import io.cli.context.Context;
+import io.cli.event.ExecuteEvent;
+import io.cli.executor.pipe.BufferChannel;
+import io.cli.executor.pipe.BytePipe;
+import io.cli.executor.pipe.Pipe;
+import io.cli.metrics.Metrics;
+import io.cli.session.Session;
 
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 public class Executor {
+    // Set to a number of seconds to cancel pipelines that run longer
+    public static final String TIMEOUT_VARIABLE = "PIPELINE_TIMEOUT";
+    public static final int INTERRUPTED_STATUS = 128 + 2;
+    public static final int TIMEOUT_STATUS = 124;
+    public static final int BROKEN_PIPE_STATUS = 128 + 13;
+    // The exit codes of all the commands of the last foreground pipeline, separated by spaces
+    public static final String PIPE_STATUS_VARIABLE = "PIPESTATUS";
+
+    private final Session session;
     private final Context context;
+    private final int pipeCapacity;
+    private final boolean attachedToTerminal;
+    private final Metrics metrics;
+    private final AtomicReference<PipelineRun> foreground = new AtomicReference<>();
+    private final BufferPool bufferPool = new BufferPool();
 
     public Executor(Context context) {
-        this.context = context;
+        this(context, BytePipe.DEFAULT_CAPACITY, false);
+    }
+
+    public Executor(Context context, int pipeCapacity, boolean attachedToTerminal) {
+        this(context, pipeCapacity, attachedToTerminal, null);
+    }
+
+    public Executor(Context context, int pipeCapacity, boolean attachedToTerminal, Metrics metrics) {
+        this(new Session(context), pipeCapacity, attachedToTerminal, metrics);
+    }
+
+    // Pipelines read and write the streams of the session, only a session on the JVM's own streams is a terminal
+    public Executor(Session session, int pipeCapacity, boolean attachedToTerminal, Metrics metrics) {
+        this.session = session;
+        this.context = session.getContext();
+        this.pipeCapacity = pipeCapacity;
+        this.attachedToTerminal = attachedToTerminal;
+        this.metrics = metrics;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public void pipeAndExecuteCommands(List<Command> commands) {
+        pipeAndExecuteStages(commands.stream().map(Stage::new).toList());
+    }
+
+    public void pipeAndExecuteStages(List<Stage> pipeline) {
+        pipeAndExecuteStages(pipeline, null);
     }
 
-    public void pipeAndExecuteCommands(List<Command> commands) throws IOException {
-        if (commands.isEmpty()) {
+    // Fills the profile, if there is one, while running the pipeline
+    public void pipeAndExecuteStages(List<Stage> pipeline, PipelineProfile profile) {
+        if (pipeline.isEmpty()) {
+            if (profile != null) {
+                profile.start();
+                profile.finish();
+            }
             return;
         }
 
-        InputStream currentInput = System.in;
-        PipedOutputStream prevOutput = null;
-        PipedInputStream prevInput = null;
+        int[] statuses = execute(pipeline, context, session.getIn(), session.getOut(), pipelineTimeout(), true, profile);
+        StringJoiner pipeStatus = new StringJoiner(" ");
+        for (int status : statuses) {
+            pipeStatus.add(Integer.toString(status));
+        }
+        context.setVar(PIPE_STATUS_VARIABLE, pipeStatus.toString(), false);
+        context.setVar("?", Integer.toString(statuses[statuses.length - 1]), false);
+    }
+
+    // Runs the pipeline between the given streams and returns the exit code of its last stage, $? is left alone
+    public int execute(List<Stage> pipeline, InputStream input, OutputStream output) {
+        return execute(pipeline, input, output, context);
+    }
+
+    // The same with the variables of a subshell, like those of a background job
+    public int execute(List<Stage> pipeline, InputStream input, OutputStream output, Context pipelineContext) {
+        int[] statuses = execute(pipeline, pipelineContext, input, output, null, false, null);
+        return statuses[statuses.length - 1];
+    }
+
+    /**
+     * Cancels the pipeline started by {@link #pipeAndExecuteStages}, if one is running, as if it was interrupted
+     * from the terminal.
+     */
+    public boolean cancelForeground() {
+        PipelineRun run = foreground.get();
+        return run != null && run.cancel(INTERRUPTED_STATUS);
+    }
 
-        for (int i = 0; i < commands.size(); i++) {
-            Command command = commands.get(i);
+    // The exit code of every command of the pipeline, in order
+    private int[] execute(List<Stage> pipeline,
+                          Context pipelineContext,
+                          InputStream input,
+                          OutputStream output,
+                          Duration timeout,
+                          boolean isForeground,
+                          PipelineProfile profile
+    ) {
+        // Only the shell's own streams are the terminal, processes are connected to anything else through the JVM
+        boolean inheritInput = attachedToTerminal && input == session.getIn();
+        boolean inheritOutput = attachedToTerminal && output == session.getOut();
 
-            if (prevOutput != null) {
-                prevOutput.close();
+        // Like in sh, every stage of a longer pipeline is a subshell, whatever it assigns is gone when it ends
+        for (Stage stage : pipeline) {
+            stage.getCommand().setContext(pipeline.size() > 1 ? pipelineContext.fork() : pipelineContext);
+        }
+
+        List<Stage> redirected = new ArrayList<>(pipeline.size());
+        for (int i = 0; i < pipeline.size(); i++) {
+            redirected.add(redirectProcess(pipeline.get(i), i == 0 && inheritInput, i == pipeline.size() - 1 && inheritOutput));
+        }
+        List<Stage> stages = fuseExternalStages(redirected);
+        if (attachedToTerminal) {
+            // Inheriting processes write straight to the file descriptors, anything we buffered must come first
+            session.getOut().flush();
+            session.getErr().flush();
+        }
+
+        int size = stages.size();
+        PipelineProfile.StageProfile[] stageProfiles = new PipelineProfile.StageProfile[size];
+        PipelineProfile.CountingInputStream countedInput = null;
+        PipelineProfile.CountingOutputStream countedOutput = null;
+        if (profile != null) {
+            for (int i = 0; i < size; i++) {
+                stageProfiles[i] = profile.addStage(stages.get(i).getDescription());
+                if (stages.get(i).getCommand() instanceof ProcessCommand processCommand) {
+                    processCommand.sampleCpuTime();
+                }
+            }
+            // A terminal inherited by a process is out of sight, anything else is counted on its way through
+            if (!inheritInput) {
+                input = countedInput = new PipelineProfile.CountingInputStream(input);
+            }
+            if (!inheritOutput) {
+                output = countedOutput = new PipelineProfile.CountingOutputStream(output);
+            }
+        }
+
+        InputStream[] inputs = new InputStream[size];
+        OutputStream[] outputs = new OutputStream[size];
+        List<Pipe> pipes = new ArrayList<>(size - 1);
+
+        // All the pipes are connected before any stage starts, so no stage can write into a dangling stream
+        inputs[0] = input;
+        outputs[size - 1] = output;
+        for (int i = 0; i < size - 1; i++) {
+            Pipe pipe = newPipe(stages.get(i), stages.get(i + 1));
+            pipes.add(pipe);
+            outputs[i] = pipe.outputStream();
+            inputs[i + 1] = pipe.inputStream();
+        }
+
+        List<Future<Integer>> futures = new ArrayList<>(size);
+        ExecuteEvent event = new ExecuteEvent();
+        event.begin();
+        if (profile != null) {
+            profile.start();
+        }
+        try (ExecutorService stagesExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            PipelineRun run = new PipelineRun(stagesExecutor, pipes);
+            if (isForeground) {
+                foreground.set(run);
+            }
+            Thread watchdog = timeout == null ? null : Thread.ofVirtual().name("pipeline-watchdog").start(() -> {
+                try {
+                    Thread.sleep(timeout);
+                    run.cancel(TIMEOUT_STATUS);
+                } catch (InterruptedException ignored) {
+                    // The pipeline finished in time
+                }
+            });
+
+            try {
+                for (int i = 0; i < size; i++) {
+                    Stage stage = stages.get(i);
+                    InputStream stageInput = inputs[i];
+                    OutputStream stageOutput = outputs[i];
+                    Pipe inputPipe = i > 0 ? pipes.get(i - 1) : null;
+                    Pipe outputPipe = i < size - 1 ? pipes.get(i) : null;
+                    PipelineProfile.StageProfile stageProfile = stageProfiles[i];
+
+                    // The streams of the whole pipeline belong to the caller and are never closed by a stage
+                    List<Closeable> resources = new ArrayList<>();
+                    if (i > 0) {
+                        resources.add(stageInput);
+                    }
+                    if (i < size - 1) {
+                        resources.add(stageOutput);
+                    }
+
+                    futures.add(stagesExecutor.submit(() -> {
+                        long startNanos = System.nanoTime();
+                        try {
+                            return runStage(stage, stageInput, stageOutput, inputPipe, outputPipe, resources);
+                        } catch (RuntimeException | Error e) {
+                            // A broken stage takes the rest of the pipeline down instead of leaving it running
+                            run.cancel(1);
+                            throw e;
+                        } finally {
+                            if (stageProfile != null) {
+                                stageProfile.setRealNanos(System.nanoTime() - startNanos);
+                            }
+                        }
+                    }));
+                }
+                int[] statuses = commandStatuses(stages, awaitStages(futures, run));
+                if (run.isCancelled()) {
+                    statuses[statuses.length - 1] = run.getCancelStatus();
+                }
+                if (event.shouldCommit()) {
+                    event.stages = size;
+                    event.exitCode = statuses[statuses.length - 1];
+                    event.cancelled = run.isCancelled();
+                    event.commit();
+                }
+                return statuses;
+            } finally {
+                if (profile != null) {
+                    fillProfile(profile, stages, stageProfiles, pipes, countedInput, countedOutput);
+                }
+                if (metrics != null) {
+                    metrics.addPipedBytes(pipes.stream().mapToLong(Pipe::bytesWritten).sum());
+                }
+                if (watchdog != null) {
+                    watchdog.interrupt();
+                }
+                if (isForeground) {
+                    foreground.compareAndSet(run, null);
+                }
+            }
+        }
+    }
+
+    private static void fillProfile(PipelineProfile profile,
+                                    List<Stage> stages,
+                                    PipelineProfile.StageProfile[] stageProfiles,
+                                    List<Pipe> pipes,
+                                    PipelineProfile.CountingInputStream countedInput,
+                                    PipelineProfile.CountingOutputStream countedOutput
+    ) {
+        int last = stageProfiles.length - 1;
+        for (int i = 0; i <= last; i++) {
+            // Only the processes are measured on their own, a builtin runs on the shell's threads
+            if (stages.get(i).getCommand() instanceof ProcessCommand processCommand) {
+                stageProfiles[i].setCpuNanos(processCommand.getCpuNanos());
             }
+        }
+        for (int i = 0; i < last; i++) {
+            Pipe pipe = pipes.get(i);
+            stageProfiles[i].setOutput(pipe.bytesWritten(), pipe.writerBlockedNanos());
+            stageProfiles[i + 1].setInput(pipe.bytesRead(), pipe.readerBlockedNanos());
+        }
+        // Nothing waits on the shell's own streams as far as the shell can tell, only the bytes are known
+        if (countedInput != null) {
+            stageProfiles[0].setInput(countedInput.getCount(), -1);
+        }
+        if (countedOutput != null) {
+            stageProfiles[last].setOutput(countedOutput.getCount(), -1);
+        }
+        profile.finish();
+    }
 
-            if (i < commands.size() - 1) {
-                prevOutput = new PipedOutputStream();
-                prevInput = new PipedInputStream(prevOutput);
-                command.setOutputStream(prevOutput);
+    private Duration pipelineTimeout() {
+        String seconds = context.getVar(TIMEOUT_VARIABLE);
+        if (seconds == null || seconds.isEmpty()) {
+            return null;
+        }
+        try {
+            double value = Double.parseDouble(seconds);
+            return value > 0 ? Duration.ofNanos((long) (value * 1_000_000_000L)) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Stage redirectProcess(Stage stage, boolean inheritInput, boolean inheritOutput) {
+        if (!(stage.getCommand() instanceof ProcessCommand processCommand)) {
+            return stage;
+        }
+
+        if (attachedToTerminal) {
+            // Processes talk to the shell's own terminal directly, with no pump threads and a real TTY
+            if (inheritInput) {
+                processCommand.redirectInput(ProcessBuilder.Redirect.INHERIT);
+            }
+            if (inheritOutput) {
+                processCommand.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+            }
+            processCommand.redirectError(ProcessBuilder.Redirect.INHERIT);
+        }
+
+        // The OS opens the files for processes, their bytes never pass through the JVM
+        for (Redirect redirect : stage.getRedirects()) {
+            switch (redirect.getType()) {
+                case INPUT -> processCommand.redirectInput(ProcessBuilder.Redirect.from(file(redirect)));
+                case OUTPUT -> processCommand.redirectOutput(ProcessBuilder.Redirect.to(file(redirect)));
+                case APPEND -> processCommand.redirectOutput(ProcessBuilder.Redirect.appendTo(file(redirect)));
+                case ERROR -> processCommand.redirectError(ProcessBuilder.Redirect.to(file(redirect)));
+                case ERROR_TO_OUTPUT -> processCommand.redirectErrorStream(true);
+            }
+        }
+        return new Stage(processCommand, List.of(), stage.getDescription());
+    }
+
+    private static List<Stage> fuseExternalStages(List<Stage> pipeline) {
+        List<Stage> stages = new ArrayList<>(pipeline.size());
+        List<Stage> externalRun = new ArrayList<>();
+        for (Stage stage : pipeline) {
+            if (stage.getCommand() instanceof ExternalCommand externalCommand) {
+                // A redirected stream in the middle of a run breaks the chain of OS pipes
+                if (!externalRun.isEmpty()
+                        && !canBeFused((ExternalCommand) externalRun.getLast().getCommand(), externalCommand)) {
+                    addExternalRun(externalRun, stages);
+                }
+                externalRun.add(stage);
             } else {
-                command.setOutputStream(System.out);
+                addExternalRun(externalRun, stages);
+                stages.add(stage);
             }
+        }
+        addExternalRun(externalRun, stages);
+        return stages;
+    }
+
+    private static boolean canBeFused(ExternalCommand previous, ExternalCommand next) {
+        return previous.getOutputRedirect().type() == ProcessBuilder.Redirect.Type.PIPE
+                && next.getInputRedirect().type() == ProcessBuilder.Redirect.Type.PIPE;
+    }
 
-            command.setInputStream(currentInput);
+    private static void addExternalRun(List<Stage> externalRun, List<Stage> stages) {
+        if (externalRun.size() == 1) {
+            stages.add(externalRun.getFirst());
+        } else if (externalRun.size() > 1) {
+            // Adjacent processes exchange data through OS pipes, the JVM only feeds and drains the run
+            List<ExternalCommand> commands = externalRun.stream()
+                    .map(stage -> (ExternalCommand) stage.getCommand())
+                    .toList();
+            String description = externalRun.stream().map(Stage::getDescription).collect(Collectors.joining(" | "));
+            stages.add(new Stage(new ExternalPipelineCommand(commands), List.of(), description));
+        }
+        externalRun.clear();
+    }
+
+    // Builtins that both take buffers exchange them directly, anything else goes through a byte ring
+    private Pipe newPipe(Stage writer, Stage reader) {
+        if (writer.getCommand() instanceof BufferCommand && reader.getCommand() instanceof BufferCommand) {
+            return new BufferChannel(bufferPool, Math.max(2, pipeCapacity / bufferPool.bufferSize()));
+        }
+        return new BytePipe(pipeCapacity);
+    }
 
+    private int runStage(Stage stage,
+                         InputStream input,
+                         OutputStream output,
+                         Pipe inputPipe,
+                         Pipe outputPipe,
+                         List<Closeable> resources
+    ) {
+        Command command = stage.getCommand();
+        InputStream pipeInput = input;
+        OutputStream pipeOutput = output;
+        OutputStream error = session.getErr();
+        try {
+            for (Redirect redirect : stage.getRedirects()) {
+                switch (redirect.getType()) {
+                    case INPUT -> input = openInput(redirect, resources);
+                    case OUTPUT, APPEND -> output = openOutput(redirect, resources);
+                    case ERROR -> error = openOutput(redirect, resources);
+                    case ERROR_TO_OUTPUT -> error = output;
+                }
+            }
+            command.setInputStream(input);
+            command.setOutputStream(output);
+            command.setErrorStream(error);
+            if (command instanceof BufferCommand bufferCommand) {
+                // A redirect replaces the pipe, the file is read and written through streams
+                bufferCommand.setBufferSource(input == pipeInput && inputPipe instanceof BufferChannel channel
+                        ? channel
+                        : new StreamBufferSource(input, bufferPool));
+                bufferCommand.setBufferSink(output == pipeOutput && outputPipe instanceof BufferChannel channel
+                        ? channel
+                        : new StreamBufferSink(output, bufferPool));
+            }
             int exitCode = command.execute();
-            context.setVar("?", Integer.toString(exitCode));
+            // Whatever the command made of the failed write, it was cut off by its reader like by SIGPIPE
+            return isBroken(outputPipe) ? BROKEN_PIPE_STATUS : exitCode;
+        } catch (RuntimeException e) {
+            if (isBroken(outputPipe)) {
+                return BROKEN_PIPE_STATUS;
+            }
+            throw e;
+        } catch (IOException e) {
+            session.getErr().println("cli: " + e.getMessage());
+            return 1;
+        } finally {
+            // Closing the output signals EOF downstream, closing the input tells the upstream writer to stop
+            resources.forEach(Executor::closeQuietly);
+        }
+    }
+
+    private static boolean isBroken(Pipe pipe) {
+        return pipe != null && pipe.isBroken();
+    }
+
+    // A fused run of processes reports one status per process, like the stages it replaced
+    private static int[] commandStatuses(List<Stage> stages, int[] stageStatuses) {
+        List<Integer> statuses = new ArrayList<>(stages.size());
+        for (int i = 0; i < stages.size(); i++) {
+            int[] processStatuses = stages.get(i).getCommand() instanceof ExternalPipelineCommand pipelineCommand
+                    ? pipelineCommand.getStatuses()
+                    : new int[0];
+            if (processStatuses.length == 0) {
+                statuses.add(stageStatuses[i]);
+            } else {
+                for (int status : processStatuses) {
+                    statuses.add(status);
+                }
+            }
+        }
+        return statuses.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private InputStream openInput(Redirect redirect, List<Closeable> resources) throws IOException {
+        FileChannel channel = FileChannel.open(path(redirect), StandardOpenOption.READ);
+        resources.add(channel);
+        return Channels.newInputStream(channel);
+    }
+
+    private OutputStream openOutput(Redirect redirect, List<Closeable> resources) throws IOException {
+        StandardOpenOption mode = redirect.getType() == RedirectType.APPEND
+                ? StandardOpenOption.APPEND
+                : StandardOpenOption.TRUNCATE_EXISTING;
+        FileChannel channel = FileChannel.open(path(redirect), StandardOpenOption.WRITE, StandardOpenOption.CREATE, mode);
+        resources.add(channel);
+        return Channels.newOutputStream(channel);
+    }
+
+    private Path path(Redirect redirect) {
+        return session.resolvePath(redirect.getTarget());
+    }
+
+    private File file(Redirect redirect) {
+        return path(redirect).toFile();
+    }
 
-            if (exitCode != 0) {
-                return;
+    private static int[] awaitStages(List<Future<Integer>> stages, PipelineRun run) {
+        RuntimeException failure = null;
+        boolean interrupted = false;
+        int[] exitCodes = new int[stages.size()];
+        for (int i = 0; i < stages.size(); i++) {
+            while (true) {
+                try {
+                    exitCodes[i] = stages.get(i).get();
+                } catch (ExecutionException e) {
+                    exitCodes[i] = 1;
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException runtimeException
+                                ? runtimeException
+                                : new RuntimeException(e.getCause());
+                    }
+                } catch (CancellationException e) {
+                    exitCodes[i] = 1;
+                } catch (InterruptedException e) {
+                    // The thread running the pipeline was interrupted, the stages must not outlive it
+                    interrupted = true;
+                    run.cancel(INTERRUPTED_STATUS);
+                    continue;
+                }
+                break;
             }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return exitCodes;
+    }
 
-            currentInput = prevInput;
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
         }
     }
 }
@@ -0,0 +1,235 @@
+package io.cli.executor;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Where a pipeline run by {@code time} spent its time: wall time of the whole pipeline, and for every stage its wall
+ * time, the CPU time of its processes, the bytes it read and wrote, and how long it waited on its pipes.
+ * <p>
+ * The user and sys times are those of the whole shell process while the pipeline ran, see {@link CpuTimes}: they
+ * include the JVM's own threads and anything else the shell ran meanwhile, and are labelled so. The CPU time of a
+ * stage only counts the processes of this pipeline.
+ * <p>
+ * A stage is blocked when its reader does not keep up with it, and starved when its writer does not feed it fast
+ * enough. Bytes at the ends of the pipeline are only known when they pass through the shell, not for a terminal
+ * or a file handed to a process.
+ */
+public class PipelineProfile {
+    private static final long UNKNOWN = -1;
+    private static final String PROCESS_WIDE = "\t(whole shell)";
+
+    private final List<StageProfile> stages = new ArrayList<>();
+    private long startNanos;
+    private long realNanos;
+    private CpuTimes startCpu;
+    private CpuTimes cpu;
+
+    public List<StageProfile> getStages() {
+        return stages;
+    }
+
+    public long getRealNanos() {
+        return realNanos;
+    }
+
+    // Process-wide, like getSysNanos
+    public long getUserNanos() {
+        return cpu == null ? 0 : cpu.userNanos();
+    }
+
+    public long getSysNanos() {
+        return cpu == null ? 0 : cpu.sysNanos();
+    }
+
+    void start() {
+        startCpu = CpuTimes.now();
+        startNanos = System.nanoTime();
+    }
+
+    void finish() {
+        realNanos = System.nanoTime() - startNanos;
+        cpu = CpuTimes.now().minus(startCpu);
+    }
+
+    StageProfile addStage(String description) {
+        StageProfile stage = new StageProfile(description);
+        stages.add(stage);
+        return stage;
+    }
+
+    // Prints the report the way bash prints time, followed by a line per stage
+    public void print(PrintStream out) {
+        StringBuilder report = new StringBuilder();
+        report.append("\nreal\t").append(formatMinutes(realNanos)).append('\n');
+        if (cpu == null || cpu.split()) {
+            report.append("user\t").append(formatMinutes(getUserNanos())).append(PROCESS_WIDE).append('\n');
+            report.append("sys\t").append(formatMinutes(getSysNanos())).append(PROCESS_WIDE).append('\n');
+        } else {
+            report.append("cpu\t").append(formatMinutes(getUserNanos())).append(PROCESS_WIDE).append('\n');
+        }
+
+        if (!stages.isEmpty()) {
+            report.append(String.format("%3s  %9s  %9s  %10s  %10s  %9s  %9s  %s%n",
+                    "#", "real", "cpu", "in", "out", "blocked", "starved", "command"));
+            for (int i = 0; i < stages.size(); i++) {
+                StageProfile stage = stages.get(i);
+                report.append(String.format("%3d  %9s  %9s  %10s  %10s  %9s  %9s  %s%n",
+                        i + 1,
+                        formatSeconds(stage.realNanos),
+                        formatSeconds(stage.cpuNanos),
+                        formatBytes(stage.bytesIn),
+                        formatBytes(stage.bytesOut),
+                        formatSeconds(stage.blockedNanos),
+                        formatSeconds(stage.starvedNanos),
+                        stage.description));
+            }
+        }
+        out.print(report);
+        out.flush();
+    }
+
+    private static String formatMinutes(long nanos) {
+        long millis = nanos / 1_000_000;
+        return String.format("%dm%d.%03ds", millis / 60_000, millis / 1000 % 60, millis % 1000);
+    }
+
+    private static String formatSeconds(long nanos) {
+        return nanos == UNKNOWN ? "-" : String.format("%.3fs", nanos / 1e9);
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes == UNKNOWN) {
+            return "-";
+        }
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        String units = "KMGTPE";
+        int unit = (63 - Long.numberOfLeadingZeros(bytes)) / 10;
+        return String.format("%.1f %siB", bytes / (double) (1L << (unit * 10)), units.charAt(unit - 1));
+    }
+
+    public static class StageProfile {
+        private final String description;
+        private long realNanos;
+        private long cpuNanos = UNKNOWN;
+        private long bytesIn = UNKNOWN;
+        private long bytesOut = UNKNOWN;
+        private long blockedNanos = UNKNOWN;
+        private long starvedNanos = UNKNOWN;
+
+        StageProfile(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public long getRealNanos() {
+            return realNanos;
+        }
+
+        // -1 when unknown, the same holds for the other figures, and always for builtins
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        public long getBytesIn() {
+            return bytesIn;
+        }
+
+        public long getBytesOut() {
+            return bytesOut;
+        }
+
+        public long getBlockedNanos() {
+            return blockedNanos;
+        }
+
+        public long getStarvedNanos() {
+            return starvedNanos;
+        }
+
+        void setRealNanos(long realNanos) {
+            this.realNanos = realNanos;
+        }
+
+        void setCpuNanos(long cpuNanos) {
+            this.cpuNanos = cpuNanos;
+        }
+
+        void setInput(long bytes, long starvedNanos) {
+            this.bytesIn = bytes;
+            this.starvedNanos = starvedNanos;
+        }
+
+        void setOutput(long bytes, long blockedNanos) {
+            this.bytesOut = bytes;
+            this.blockedNanos = blockedNanos;
+        }
+    }
+
+    // Counts the bytes read at the start of a pipeline
+    static class CountingInputStream extends FilterInputStream {
+        private volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int bytesRead = in.read(bytes, offset, length);
+            if (bytesRead > 0) {
+                count += bytesRead;
+            }
+            return bytesRead;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+    // Counts the bytes written at the end of a pipeline
+    static class CountingOutputStream extends FilterOutputStream {
+        private volatile long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
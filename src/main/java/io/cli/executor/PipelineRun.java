@@ -0,0 +1,45 @@
+package io.cli.executor;
+
+import io.cli.executor.pipe.Pipe;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pipeline while it runs. Cancelling it interrupts every stage, which makes process stages tear down their
+ * process trees, and closes every pipe, so no stage stays blocked on a peer that is gone.
+ */
+class PipelineRun {
+    private static final int NOT_CANCELLED = -1;
+
+    private final ExecutorService stages;
+    private final List<Pipe> pipes;
+    private final AtomicInteger cancelStatus = new AtomicInteger(NOT_CANCELLED);
+
+    PipelineRun(ExecutorService stages, List<Pipe> pipes) {
+        this.stages = stages;
+        this.pipes = pipes;
+    }
+
+    // Only the first cancellation counts, its status becomes the status of the pipeline
+    boolean cancel(int status) {
+        if (!cancelStatus.compareAndSet(NOT_CANCELLED, status)) {
+            return false;
+        }
+        stages.shutdownNow();
+        for (Pipe pipe : pipes) {
+            pipe.closeWriter();
+            pipe.closeReader();
+        }
+        return true;
+    }
+
+    boolean isCancelled() {
+        return cancelStatus.get() != NOT_CANCELLED;
+    }
+
+    int getCancelStatus() {
+        return cancelStatus.get();
+    }
+}
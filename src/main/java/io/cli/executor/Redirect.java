@@ -0,0 +1,39 @@
+package io.cli.executor;
+
+import java.util.Objects;
+
+public class Redirect {
+    private final RedirectType type;
+    private final String target;
+
+    public Redirect(RedirectType type, String target) {
+        this.type = type;
+        this.target = target;
+    }
+
+    public RedirectType getType() {
+        return type;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        Redirect redirect = (Redirect) obj;
+        return type == redirect.type && Objects.equals(target, redirect.target);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, target);
+    }
+
+    @Override
+    public String toString() {
+        return target == null ? type.getOperator() : type.getOperator() + target;
+    }
+}
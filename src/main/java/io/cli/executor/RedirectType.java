@@ -0,0 +1,32 @@
+package io.cli.executor;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+public enum RedirectType {
+    INPUT("<", true),
+    OUTPUT(">", true),
+    APPEND(">>", true),
+    ERROR("2>", true),
+    ERROR_TO_OUTPUT("2>&1", false);
+
+    private final String operator;
+    private final boolean hasTarget;
+
+    RedirectType(String operator, boolean hasTarget) {
+        this.operator = operator;
+        this.hasTarget = hasTarget;
+    }
+
+    public static Optional<RedirectType> fromOperator(String operator) {
+        return Arrays.stream(values()).filter(type -> type.operator.equals(operator)).findFirst();
+    }
+
+    public String getOperator() {
+        return operator;
+    }
+
+    public boolean hasTarget() {
+        return hasTarget;
+    }
+}
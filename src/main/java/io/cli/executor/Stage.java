@@ -0,0 +1,38 @@
+package io.cli.executor;
+
+import io.cli.command.Command;
+
+import java.util.List;
+
+public class Stage {
+    private final Command command;
+    private final List<Redirect> redirects;
+    private final String description;
+
+    public Stage(Command command, List<Redirect> redirects, String description) {
+        this.command = command;
+        this.redirects = redirects;
+        this.description = description;
+    }
+
+    public Stage(Command command, List<Redirect> redirects) {
+        this(command, redirects, null);
+    }
+
+    public Stage(Command command) {
+        this(command, List.of());
+    }
+
+    public Command getCommand() {
+        return command;
+    }
+
+    public List<Redirect> getRedirects() {
+        return redirects;
+    }
+
+    // The stage as it was typed, for reports
+    public String getDescription() {
+        return description != null ? description : command.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,14 @@
+package io.cli.executor.pipe;
+
+import java.io.IOException;
+
+/**
+ * Thrown on a write to a pipe whose read end is closed, the equivalent of {@code EPIPE}.
+ */
+public class BrokenPipeException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public BrokenPipeException() {
+        super("Broken pipe");
+    }
+}
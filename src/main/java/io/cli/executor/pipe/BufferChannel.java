@@ -0,0 +1,316 @@
+package io.cli.executor.pipe;
+
+import io.cli.command.BufferPool;
+import io.cli.command.BufferSink;
+import io.cli.command.BufferSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Single-producer/single-consumer pipe that passes whole buffers from the writer to the reader.
+ * <p>
+ * A buffer put into the channel is handed to the reader as is, so two {@link io.cli.command.BufferCommand}s
+ * exchange data without copying it. At most {@code capacity} buffers wait in the channel, a writer finding it full
+ * waits for the reader. The stream views copy through pooled buffers, for commands that only know streams.
+ */
+public class BufferChannel implements Pipe, BufferSource, BufferSink {
+    private final BufferPool pool;
+    private final int capacity;
+    private final ArrayDeque<ByteBuffer> queue;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private boolean readerClosed;
+    private boolean writerClosed;
+    private volatile boolean broken;
+    private volatile long bytesWritten;
+    private volatile long bytesRead;
+    private volatile long writerBlockedNanos;
+    private volatile long readerBlockedNanos;
+
+    private final InputStream inputStream = new ChannelInputStream();
+    private final OutputStream outputStream = new ChannelOutputStream();
+
+    public BufferChannel(BufferPool pool, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Channel capacity must be positive: " + capacity);
+        }
+        this.pool = pool;
+        this.capacity = capacity;
+        this.queue = new ArrayDeque<>(capacity);
+    }
+
+    @Override
+    public InputStream inputStream() {
+        return inputStream;
+    }
+
+    @Override
+    public OutputStream outputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public ByteBuffer allocate() {
+        return pool.acquire();
+    }
+
+    @Override
+    public void put(ByteBuffer buffer) throws IOException {
+        if (!buffer.hasRemaining()) {
+            pool.release(buffer);
+            return;
+        }
+        lock.lock();
+        try {
+            while (true) {
+                if (readerClosed) {
+                    broken = true;
+                    pool.release(buffer);
+                    throw new BrokenPipeException();
+                }
+                if (writerClosed) {
+                    pool.release(buffer);
+                    throw new IOException("Pipe closed");
+                }
+                if (queue.size() < capacity) {
+                    bytesWritten += buffer.remaining();
+                    queue.add(buffer);
+                    notEmpty.signal();
+                    return;
+                }
+                long waiting = System.nanoTime();
+                try {
+                    notFull.await();
+                } catch (InterruptedException e) {
+                    pool.release(buffer);
+                    throw interrupted();
+                } finally {
+                    writerBlockedNanos += System.nanoTime() - waiting;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Every put is delivered at once, there is nothing to flush
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public ByteBuffer take() throws IOException {
+        lock.lock();
+        try {
+            while (true) {
+                if (readerClosed) {
+                    throw new IOException("Pipe closed");
+                }
+                ByteBuffer buffer = queue.poll();
+                if (buffer != null) {
+                    bytesRead += buffer.remaining();
+                    notFull.signal();
+                    return buffer;
+                }
+                if (writerClosed) {
+                    return null;
+                }
+                long waiting = System.nanoTime();
+                try {
+                    notEmpty.await();
+                } catch (InterruptedException e) {
+                    throw interrupted();
+                } finally {
+                    readerBlockedNanos += System.nanoTime() - waiting;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void release(ByteBuffer buffer) {
+        pool.release(buffer);
+    }
+
+    @Override
+    public void closeWriter() {
+        lock.lock();
+        try {
+            writerClosed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void closeReader() {
+        lock.lock();
+        try {
+            readerClosed = true;
+            // Nobody will read the waiting buffers any more
+            for (ByteBuffer buffer; (buffer = queue.poll()) != null; ) {
+                pool.release(buffer);
+            }
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isBroken() {
+        return broken;
+    }
+
+    @Override
+    public long bytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public long bytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public long writerBlockedNanos() {
+        return writerBlockedNanos;
+    }
+
+    @Override
+    public long readerBlockedNanos() {
+        return readerBlockedNanos;
+    }
+
+    private static InterruptedIOException interrupted() {
+        // Like BytePipe, the interrupt stays visible to the caller
+        Thread.currentThread().interrupt();
+        return new InterruptedIOException("Interrupted while waiting on pipe");
+    }
+
+    private class ChannelInputStream extends InputStream {
+        private ByteBuffer current;
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return current.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] destination, int offset, int length) throws IOException {
+            Objects.checkFromIndexSize(offset, length, destination.length);
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(length, current.remaining());
+            current.get(destination, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return current == null ? 0 : current.remaining();
+        }
+
+        @Override
+        public void close() {
+            if (current != null) {
+                pool.release(current);
+                current = null;
+            }
+            closeReader();
+        }
+
+        private boolean fill() throws IOException {
+            while (current == null || !current.hasRemaining()) {
+                if (current != null) {
+                    pool.release(current);
+                }
+                current = take();
+                if (current == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private class ChannelOutputStream extends OutputStream {
+        private ByteBuffer current;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (current == null) {
+                current = pool.acquire();
+            }
+            current.put((byte) b);
+            if (!current.hasRemaining()) {
+                send();
+            }
+        }
+
+        @Override
+        public void write(byte[] source, int offset, int length) throws IOException {
+            Objects.checkFromIndexSize(offset, length, source.length);
+            while (length > 0) {
+                if (current == null) {
+                    current = pool.acquire();
+                }
+                int count = Math.min(length, current.remaining());
+                current.put(source, offset, count);
+                if (!current.hasRemaining()) {
+                    send();
+                }
+                offset += count;
+                length -= count;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (current != null && current.position() > 0) {
+                send();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                if (current != null) {
+                    pool.release(current);
+                    current = null;
+                }
+                closeWriter();
+            }
+        }
+
+        private void send() throws IOException {
+            ByteBuffer buffer = current;
+            current = null;
+            put(buffer.flip());
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package io.cli.executor.pipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-producer/single-consumer byte channel backed by a ring buffer.
+ * <p>
+ * Exactly one thread may write and one thread may read at a time; either end may be closed from any thread.
+ * A full buffer parks the writer and an empty one parks the reader. A parked reader is woken by the first bytes
+ * written, since a writer that never flushes may write nothing more for a long time. A parked writer is woken once
+ * half the buffer is free, so a fast writer still moves in large batches. Closing the write end delivers
+ * EOF after the buffered bytes, closing the read end makes every further write fail with a
+ * {@link BrokenPipeException}.
+ */
+public class BytePipe implements Pipe {
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private static final int SPIN_TRIES = Runtime.getRuntime().availableProcessors() > 1 ? 256 : 0;
+
+    private final byte[] buffer;
+    private final int mask;
+    private final int wakeThreshold;
+
+    private volatile long readPosition;
+    private volatile long writePosition;
+
+    private volatile boolean readerClosed;
+    private volatile boolean writerClosed;
+    private volatile boolean broken;
+
+    // Only measured around parking, a wait short enough to be spun through costs nothing
+    private volatile long writerBlockedNanos;
+    private volatile long readerBlockedNanos;
+
+    private volatile Thread waitingReader;
+    private volatile Thread waitingWriter;
+
+    private final InputStream inputStream = new PipeInputStream();
+    private final OutputStream outputStream = new PipeOutputStream();
+
+    public BytePipe() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public BytePipe(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pipe capacity must be positive: " + capacity);
+        }
+        int roundedCapacity = Integer.highestOneBit(capacity);
+        if (roundedCapacity < capacity) {
+            roundedCapacity <<= 1;
+        }
+        buffer = new byte[roundedCapacity];
+        mask = roundedCapacity - 1;
+        wakeThreshold = Math.max(1, roundedCapacity / 2);
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    public InputStream inputStream() {
+        return inputStream;
+    }
+
+    public OutputStream outputStream() {
+        return outputStream;
+    }
+
+    public int available() {
+        return (int) (writePosition - readPosition);
+    }
+
+    public int read(byte[] destination, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, destination.length);
+        if (length == 0) {
+            return 0;
+        }
+
+        int available = awaitData();
+        if (available < 0) {
+            return -1;
+        }
+
+        int count = Math.min(available, length);
+        long position = readPosition;
+        int start = (int) (position & mask);
+        int firstPart = Math.min(count, buffer.length - start);
+        System.arraycopy(buffer, start, destination, offset, firstPart);
+        System.arraycopy(buffer, 0, destination, offset + firstPart, count - firstPart);
+        readPosition = position + count;
+        if (buffer.length - available() >= wakeThreshold) {
+            wakeWriter();
+        }
+        return count;
+    }
+
+    public int read(ByteBuffer destination) throws IOException {
+        if (!destination.hasRemaining()) {
+            return 0;
+        }
+
+        int available = awaitData();
+        if (available < 0) {
+            return -1;
+        }
+
+        int count = Math.min(available, destination.remaining());
+        long position = readPosition;
+        int start = (int) (position & mask);
+        int firstPart = Math.min(count, buffer.length - start);
+        destination.put(buffer, start, firstPart);
+        destination.put(buffer, 0, count - firstPart);
+        readPosition = position + count;
+        if (buffer.length - available() >= wakeThreshold) {
+            wakeWriter();
+        }
+        return count;
+    }
+
+    public void write(byte[] source, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, source.length);
+        while (length > 0) {
+            int count = Math.min(awaitSpace(), length);
+            long position = writePosition;
+            int start = (int) (position & mask);
+            int firstPart = Math.min(count, buffer.length - start);
+            System.arraycopy(source, offset, buffer, start, firstPart);
+            System.arraycopy(source, offset + firstPart, buffer, 0, count - firstPart);
+            writePosition = position + count;
+            // Only a reader that found the buffer empty is parked, the check is a single volatile read otherwise
+            wakeReader();
+            offset += count;
+            length -= count;
+        }
+    }
+
+    public void write(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            int count = Math.min(awaitSpace(), source.remaining());
+            long position = writePosition;
+            int start = (int) (position & mask);
+            int firstPart = Math.min(count, buffer.length - start);
+            source.get(buffer, start, firstPart);
+            source.get(buffer, 0, count - firstPart);
+            writePosition = position + count;
+            wakeReader();
+        }
+    }
+
+    // Whether a write failed because the reader was gone, the writer was then cut off like by SIGPIPE
+    public boolean isBroken() {
+        return broken;
+    }
+
+    @Override
+    public long bytesWritten() {
+        return writePosition;
+    }
+
+    @Override
+    public long bytesRead() {
+        return readPosition;
+    }
+
+    @Override
+    public long writerBlockedNanos() {
+        return writerBlockedNanos;
+    }
+
+    @Override
+    public long readerBlockedNanos() {
+        return readerBlockedNanos;
+    }
+
+    public void flush() {
+        wakeReader();
+    }
+
+    public void closeReader() {
+        readerClosed = true;
+        LockSupport.unpark(waitingWriter);
+        LockSupport.unpark(waitingReader);
+    }
+
+    public void closeWriter() {
+        writerClosed = true;
+        LockSupport.unpark(waitingReader);
+    }
+
+    private int awaitData() throws IOException {
+        int spins = SPIN_TRIES;
+        while (true) {
+            if (readerClosed) {
+                throw new IOException("Pipe closed");
+            }
+            int available = available();
+            if (available > 0) {
+                return available;
+            }
+            if (writerClosed) {
+                // The writer may have published its last bytes right before closing
+                available = available();
+                return available > 0 ? available : -1;
+            }
+            if (spins-- > 0) {
+                // A busy writer usually refills the buffer faster than a park/unpark round trip
+                Thread.onSpinWait();
+                continue;
+            }
+
+            // Publishing the waiting thread before the final check pairs with the writer's check after publishing
+            waitingReader = Thread.currentThread();
+            if (available() == 0 && !writerClosed && !readerClosed) {
+                long parked = System.nanoTime();
+                LockSupport.park(this);
+                readerBlockedNanos += System.nanoTime() - parked;
+            }
+            waitingReader = null;
+            checkInterrupted();
+        }
+    }
+
+    private int awaitSpace() throws IOException {
+        int spins = SPIN_TRIES;
+        while (true) {
+            if (readerClosed) {
+                broken = true;
+                throw new BrokenPipeException();
+            }
+            if (writerClosed) {
+                throw new IOException("Pipe closed");
+            }
+            int space = buffer.length - available();
+            if (space > 0) {
+                return space;
+            }
+            if (spins-- > 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            waitingWriter = Thread.currentThread();
+            if (available() == buffer.length && !readerClosed && !writerClosed) {
+                long parked = System.nanoTime();
+                LockSupport.park(this);
+                writerBlockedNanos += System.nanoTime() - parked;
+            }
+            waitingWriter = null;
+            checkInterrupted();
+        }
+    }
+
+    private void wakeReader() {
+        Thread reader = waitingReader;
+        if (reader != null) {
+            LockSupport.unpark(reader);
+        }
+    }
+
+    private void wakeWriter() {
+        Thread writer = waitingWriter;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Interrupted while waiting on pipe");
+        }
+    }
+
+    private class PipeInputStream extends InputStream {
+        private final byte[] single = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            return BytePipe.this.read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] destination, int offset, int length) throws IOException {
+            return BytePipe.this.read(destination, offset, length);
+        }
+
+        @Override
+        public int available() {
+            return BytePipe.this.available();
+        }
+
+        @Override
+        public void close() {
+            closeReader();
+        }
+    }
+
+    private class PipeOutputStream extends OutputStream {
+        private final byte[] single = new byte[1];
+
+        @Override
+        public void write(int b) throws IOException {
+            single[0] = (byte) b;
+            BytePipe.this.write(single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] source, int offset, int length) throws IOException {
+            BytePipe.this.write(source, offset, length);
+        }
+
+        @Override
+        public void flush() {
+            BytePipe.this.flush();
+        }
+
+        @Override
+        public void close() {
+            closeWriter();
+        }
+    }
+}
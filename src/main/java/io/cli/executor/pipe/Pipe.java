@@ -0,0 +1,32 @@
+package io.cli.executor.pipe;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A connection between two stages of a pipeline. Either end may be closed from any thread.
+ */
+public interface Pipe {
+    InputStream inputStream();
+
+    OutputStream outputStream();
+
+    // Delivers EOF to the reader after the data already written
+    void closeWriter();
+
+    // Makes every further write fail with a BrokenPipeException
+    void closeReader();
+
+    // Whether a write failed because the reader was gone, the writer was then cut off like by SIGPIPE
+    boolean isBroken();
+
+    long bytesWritten();
+
+    long bytesRead();
+
+    // Time the writer spent waiting for the reader to make room, the backpressure of the pipe
+    long writerBlockedNanos();
+
+    // Time the reader spent waiting for data
+    long readerBlockedNanos();
+}
@@ -0,0 +1,72 @@
+package io.cli.job;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public class Job {
+    // The status of a job stopped by kill, like a process ended by SIGKILL
+    public static final int KILLED_STATUS = 128 + 9;
+
+    private final int id;
+    private final String command;
+    private final CompletableFuture<Integer> status = new CompletableFuture<>();
+    private volatile Thread thread;
+    private volatile boolean killed;
+
+    Job(int id, String command) {
+        this.id = id;
+        this.command = command;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public boolean isDone() {
+        return status.isDone();
+    }
+
+    // Parks the caller until the job ends, a virtual thread waiting here does not hold its carrier
+    public int await() throws InterruptedException {
+        try {
+            return status.get();
+        } catch (ExecutionException e) {
+            return 1;
+        }
+    }
+
+    public void kill() {
+        killed = true;
+        Thread jobThread = thread;
+        if (jobThread != null) {
+            jobThread.interrupt();
+        }
+    }
+
+    public String describeState() {
+        if (!status.isDone()) {
+            return "Running";
+        }
+        int exitCode = status.join();
+        if (killed) {
+            return "Killed";
+        }
+        return exitCode == 0 ? "Done" : "Exit " + exitCode;
+    }
+
+    void setThread(Thread thread) {
+        this.thread = thread;
+    }
+
+    boolean isKilled() {
+        return killed;
+    }
+
+    void finish(int exitCode) {
+        status.complete(killed ? KILLED_STATUS : exitCode);
+    }
+}
@@ -0,0 +1,93 @@
+package io.cli.job;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Writes complete lines of a job to the shell's output, each prefixed with the job number,
+ * so the output of concurrent jobs never interleaves within a line.
+ * <p>
+ * The jobs of a shell share a lock rather than a monitor, a line waiting on a slow output does not pin its
+ * virtual thread.
+ * <p>
+ * A line is held until its newline only up to a maximum length, longer output without newlines is written in
+ * prefixed pieces of that length instead of being kept in memory as a whole.
+ */
+class JobOutputStream extends OutputStream {
+    static final int DEFAULT_MAX_LINE_LENGTH = 64 * 1024;
+
+    private final OutputStream target;
+    private final Lock lock;
+    private final byte[] prefix;
+    private final int maxLineLength;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+    JobOutputStream(int id, OutputStream target, Lock lock) {
+        this(id, target, lock, DEFAULT_MAX_LINE_LENGTH);
+    }
+
+    JobOutputStream(int id, OutputStream target, Lock lock, int maxLineLength) {
+        this.target = target;
+        this.lock = lock;
+        this.prefix = ("[" + id + "] ").getBytes(StandardCharsets.US_ASCII);
+        this.maxLineLength = maxLineLength;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (b != '\n' && line.size() == maxLineLength) {
+            writePartialLine();
+        }
+        line.write(b);
+        if (b == '\n') {
+            writeLine();
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        int start = offset;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (bytes[i] == '\n') {
+                line.write(bytes, start, i + 1 - start);
+                writeLine();
+                start = i + 1;
+            } else if (line.size() + i - start == maxLineLength) {
+                line.write(bytes, start, i - start);
+                writePartialLine();
+                start = i;
+            }
+        }
+        line.write(bytes, start, end - start);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (line.size() > 0) {
+            line.write('\n');
+            writeLine();
+        }
+    }
+
+    // The piece ends with a newline of its own, so the lines of other jobs never continue it
+    private void writePartialLine() throws IOException {
+        line.write('\n');
+        writeLine();
+    }
+
+    private void writeLine() throws IOException {
+        lock.lock();
+        try {
+            target.write(prefix);
+            line.writeTo(target);
+            target.flush();
+        } finally {
+            lock.unlock();
+        }
+        line.reset();
+    }
+}
@@ -0,0 +1,105 @@
+package io.cli.job;
+
+import io.cli.context.Context;
+import io.cli.executor.Executor;
+import io.cli.executor.Stage;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Background jobs of the shell. Every job runs its pipeline on a virtual thread, so waiting jobs hold no platform
+ * threads, and its output lines are prefixed with the job number.
+ * <p>
+ * A job stays in the table until it is waited for, or until it is reported as finished.
+ */
+public class JobTable {
+    private final Executor executor;
+    private final OutputStream output;
+    private final ConcurrentSkipListMap<Integer, Job> jobs = new ConcurrentSkipListMap<>();
+    private final AtomicInteger lastId = new AtomicInteger();
+    private final ReentrantLock outputLock = new ReentrantLock();
+    private final ThreadFactory threadFactory = Thread.ofVirtual().name("job-", 1).factory();
+
+    // Jobs write to the stdout of the executor's session
+    public JobTable(Executor executor) {
+        this(executor, executor.getSession().getOut());
+    }
+
+    public JobTable(Executor executor, OutputStream output) {
+        this.executor = executor;
+        this.output = output;
+    }
+
+    public Job start(String command, List<Stage> stages) {
+        return start(command, stages, executor.getSession().getContext().fork());
+    }
+
+    // A job is a subshell: it runs in a fork of the shell's variables, which is never published
+    public Job start(String command, List<Stage> stages, Context context) {
+        Job job = new Job(lastId.incrementAndGet(), command);
+        jobs.put(job.getId(), job);
+
+        Thread thread = threadFactory.newThread(() -> {
+            int exitCode = 1;
+            // Background jobs do not read the terminal
+            try (JobOutputStream jobOutput = new JobOutputStream(job.getId(), output, outputLock)) {
+                // A job killed before its thread started was never interrupted
+                if (!job.isKilled()) {
+                    exitCode = executor.execute(stages, InputStream.nullInputStream(), jobOutput, context);
+                }
+            } catch (Exception e) {
+                // Like a subshell, a failing or exiting job only ends itself
+            } finally {
+                job.finish(exitCode);
+            }
+        });
+        job.setThread(thread);
+        thread.start();
+        return job;
+    }
+
+    // Accepts both N and %N
+    public Optional<Job> find(String spec) {
+        String number = spec.startsWith("%") ? spec.substring(1) : spec;
+        try {
+            return Optional.ofNullable(jobs.get(Integer.parseInt(number)));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    // The most recently started job
+    public Optional<Job> getCurrent() {
+        Map.Entry<Integer, Job> last = jobs.lastEntry();
+        return last == null ? Optional.empty() : Optional.of(last.getValue());
+    }
+
+    public Collection<Job> getJobs() {
+        return List.copyOf(jobs.values());
+    }
+
+    public void remove(Job job) {
+        jobs.remove(job.getId(), job);
+    }
+
+    // Removes the finished jobs and returns them, so each of them is reported once
+    public List<Job> drainFinished() {
+        List<Job> finished = new ArrayList<>();
+        for (Job job : jobs.values()) {
+            if (job.isDone() && jobs.remove(job.getId(), job)) {
+                finished.add(job);
+            }
+        }
+        return finished;
+    }
+}
@@ -0,0 +1,98 @@
+package io.cli.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Numbers of a whole shell session: latency histograms by command name and totals of what its pipelines did.
+ * Safe to update from any thread, nothing here takes a lock on the recording path.
+ */
+public class Metrics {
+    // More distinct names than this are recorded together, so a script looping over generated names stays bounded
+    public static final int MAX_COMMANDS = 128;
+    public static final String OTHER_COMMANDS = "other";
+
+    public enum Kind {
+        PARSE("parse", "Time to turn a line into a plan, including plan cache hits"),
+        DISPATCH("dispatch", "Time to look up and create the commands of a plan"),
+        SPAWN("spawn", "Time to start the processes of an external command"),
+        PIPELINE("pipeline", "Time from the start of a foreground pipeline to the end of its last stage");
+
+        private final String label;
+        private final String help;
+
+        Kind(String label, String help) {
+            this.label = label;
+            this.help = help;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public String getHelp() {
+            return help;
+        }
+    }
+
+    private final Map<Kind, Map<String, LatencyHistogram>> histograms = new EnumMap<>(Kind.class);
+    private final LongAdder pipedBytes = new LongAdder();
+    private final LongAdder spawnedProcesses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public Metrics() {
+        for (Kind kind : Kind.values()) {
+            histograms.put(kind, new ConcurrentHashMap<>());
+        }
+    }
+
+    public void record(Kind kind, String command, long nanos) {
+        Map<String, LatencyHistogram> byCommand = histograms.get(kind);
+        LatencyHistogram histogram = byCommand.get(command);
+        if (histogram == null) {
+            String name = byCommand.size() < MAX_COMMANDS ? command : OTHER_COMMANDS;
+            histogram = byCommand.computeIfAbsent(name, key -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    public void addPipedBytes(long bytes) {
+        pipedBytes.add(bytes);
+    }
+
+    public void addSpawnedProcesses(int processes) {
+        spawnedProcesses.add(processes);
+    }
+
+    public void addFailure() {
+        failures.increment();
+    }
+
+    // Histograms by command name, sorted by name
+    public Map<String, LatencyHistogram> getHistograms(Kind kind) {
+        return new TreeMap<>(histograms.get(kind));
+    }
+
+    public long getPipedBytes() {
+        return pipedBytes.sum();
+    }
+
+    public long getSpawnedProcesses() {
+        return spawnedProcesses.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    // Values recorded while resetting may be kept or dropped
+    public void reset() {
+        histograms.values().forEach(Map::clear);
+        pipedBytes.reset();
+        spawnedProcesses.reset();
+        failures.reset();
+    }
+}
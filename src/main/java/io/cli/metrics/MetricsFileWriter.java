@@ -0,0 +1,96 @@
+package io.cli.metrics;
+
+import io.cli.context.Context;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes the metrics to the file named by {@code METRICS_FILE} every {@code METRICS_INTERVAL} seconds, for a
+ * textfile collector to scrape. Both are read from the shell variables first and from the environment second,
+ * on every round, so writing can be turned on and off from the shell.
+ * <p>
+ * The file is replaced by a rename, a collector never sees it half written.
+ */
+public class MetricsFileWriter {
+    public static final String FILE_VARIABLE = "METRICS_FILE";
+    public static final String INTERVAL_VARIABLE = "METRICS_INTERVAL";
+    public static final long DEFAULT_INTERVAL_MILLIS = 15_000;
+
+    private final Metrics metrics;
+    private final Context context;
+    private Thread thread;
+
+    public MetricsFileWriter(Metrics metrics, Context context) {
+        this.metrics = metrics;
+        this.context = context;
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = Thread.ofVirtual().name("metrics-writer").start(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(interval());
+                    write();
+                }
+            } catch (InterruptedException ignored) {
+                // The shell is exiting
+            }
+        });
+    }
+
+    // Stops the periodic writes and writes the final numbers once more
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+        write();
+    }
+
+    // Returns false if no file is set or it could not be written
+    public boolean write() {
+        String file = variable(FILE_VARIABLE);
+        if (file == null || file.isEmpty()) {
+            return false;
+        }
+
+        Path target = Path.of(file);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.writeString(temporary, PrometheusFormat.format(metrics));
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private long interval() {
+        String seconds = variable(INTERVAL_VARIABLE);
+        if (seconds == null || seconds.isEmpty()) {
+            return DEFAULT_INTERVAL_MILLIS;
+        }
+        try {
+            double value = Double.parseDouble(seconds);
+            return value > 0 ? Math.max(1, (long) (value * 1000)) : DEFAULT_INTERVAL_MILLIS;
+        } catch (NumberFormatException e) {
+            return DEFAULT_INTERVAL_MILLIS;
+        }
+    }
+
+    private String variable(String name) {
+        String value = context.getVar(name);
+        return value != null ? value : System.getenv(name);
+    }
+}
@@ -0,0 +1,59 @@
+package io.cli.metrics;
+
+import java.util.Map;
+
+/**
+ * Renders {@link Metrics} in the Prometheus text exposition format. Latencies are summaries in seconds with
+ * p50, p99 and p999 as quantiles, one series per command name.
+ */
+public class PrometheusFormat {
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    private PrometheusFormat() {
+    }
+
+    public static String format(Metrics metrics) {
+        StringBuilder out = new StringBuilder();
+        for (Metrics.Kind kind : Metrics.Kind.values()) {
+            String name = "cli_" + kind.getLabel() + "_seconds";
+            header(out, name, kind.getHelp(), "summary");
+            for (Map.Entry<String, LatencyHistogram> entry : metrics.getHistograms(kind).entrySet()) {
+                String command = escape(entry.getKey());
+                LatencyHistogram histogram = entry.getValue();
+                for (double quantile : QUANTILES) {
+                    out.append(name).append("{command=\"").append(command).append("\",quantile=\"").append(quantile)
+                            .append("\"} ").append(seconds(histogram.percentile(quantile))).append('\n');
+                }
+                out.append(name).append("_sum{command=\"").append(command).append("\"} ")
+                        .append(seconds(histogram.getSumNanos())).append('\n');
+                out.append(name).append("_count{command=\"").append(command).append("\"} ")
+                        .append(histogram.getCount()).append('\n');
+            }
+        }
+
+        counter(out, "cli_piped_bytes_total", "Bytes passed between the stages of pipelines by the shell",
+                metrics.getPipedBytes());
+        counter(out, "cli_spawned_processes_total", "External processes started", metrics.getSpawnedProcesses());
+        counter(out, "cli_failures_total", "Foreground pipelines that ended with a non-zero status",
+                metrics.getFailures());
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, help, "counter");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
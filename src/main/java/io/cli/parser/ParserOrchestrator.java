@@ -1,32 +1,56 @@
 package io.cli.parser;
 
-import io.cli.command.CommandFactory;
 import io.cli.context.Context;
-import io.cli.parser.innerparser.PipeParser;
-import io.cli.parser.innerparser.QuoteParser;
-import io.cli.parser.innerparser.Substitutor;
+import io.cli.event.ParseEvent;
+import io.cli.parser.innerparser.Lexer;
+import io.cli.parser.innerparser.TokenBuffer;
+import io.cli.parser.innerparser.TokenTemplate;
 import io.cli.parser.token.Token;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class ParserOrchestrator {
-    private final PipeParser pipeParser;
-    private final QuoteParser quoteParser;
-    private final Substitutor substitutor;
+    private final Lexer lexer;
     private final Context context;
 
-    public ParserOrchestrator(PipeParser pipeParser,
-                              QuoteParser quoteParser,
-                              Substitutor substitutor,
-                              Context context
-    ) {
-        this.pipeParser = pipeParser;
-        this.quoteParser = quoteParser;
-        this.substitutor = substitutor;
+    public ParserOrchestrator(Lexer lexer, Context context) {
+        this.lexer = lexer;
         this.context = context;
     }
 
     public List<List<Token>> parse(String input) {
-        return pipeParser.parsePipe(substitutor.substitute(quoteParser.parseQuote(input), context));
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        List<List<Token>> stages = lexer.lex(input, context);
+        commit(event, input, stages.size(), false);
+        return stages;
     }
-}
\ No newline at end of file
+
+    public List<List<TokenTemplate>> compile(String input) {
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        // The templates are compiled straight from the offsets, without lists of tokens in between
+        TokenBuffer tokens = lexer.lexRaw(input, new TokenBuffer());
+        List<List<TokenTemplate>> stages = new ArrayList<>(tokens.getStageCount());
+        for (int stage = 0; stage < tokens.getStageCount(); stage++) {
+            int end = tokens.getStageEnd(stage);
+            List<TokenTemplate> templates = new ArrayList<>(end - tokens.getStageStart(stage));
+            for (int i = tokens.getStageStart(stage); i < end; i++) {
+                templates.add(TokenTemplate.compile(tokens.getToken(i)));
+            }
+            stages.add(templates);
+        }
+        commit(event, input, stages.size(), true);
+        return stages;
+    }
+
+    private static void commit(ParseEvent event, String input, int stages, boolean compiled) {
+        if (event.shouldCommit()) {
+            event.length = input.length();
+            event.stages = stages;
+            event.compiled = compiled;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package io.cli.parser.innerparser;
+
+import io.cli.parser.token.Token;
+import io.cli.parser.token.TokenType;
+
+import java.io.IOException;
+
+/**
+ * The chars a {@link LineScanner} reads, from a string or a reader, and where the tokens it finds go.
+ * <p>
+ * The source keeps the token text and the stages because only it knows whether the text can stay a slice of the
+ * input, and in what form the line is wanted.
+ */
+interface CharSource {
+    // The next char, or -1 once the input is over
+    int read() throws IOException;
+
+    // The char the given number of chars after the next one, without reading anything
+    int peek(int ahead) throws IOException;
+
+    // Adds the char read last to the current token
+    void keep();
+
+    // Adds text that was not written in the input, like the value of a variable
+    void keep(CharSequence text);
+
+    // The current token is the single char c, exactly as written
+    boolean tokenIs(char c);
+
+    boolean isTokenEmpty();
+
+    // Adds the current token to the current stage and starts an empty one
+    void endToken(TokenType type);
+
+    // Forgets the current token, like the 2 of 2>
+    void dropToken();
+
+    // Adds a token that is not text of the input, a redirect or &
+    void addOperator(Token operator);
+
+    // A pipe: the following tokens are a new stage, even if this one is empty
+    void endStage();
+
+    // The last stage is only kept if it has tokens
+    void endLine();
+}
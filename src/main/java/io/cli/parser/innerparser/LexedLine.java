@@ -0,0 +1,29 @@
+package io.cli.parser.innerparser;
+
+import io.cli.parser.token.Token;
+
+import java.util.List;
+
+public class LexedLine {
+    private final String text;
+    private final List<List<Token>> stages;
+
+    public LexedLine(String text) {
+        this.text = text;
+        this.stages = null;
+    }
+
+    public LexedLine(List<List<Token>> stages) {
+        this.text = null;
+        this.stages = stages;
+    }
+
+    // Null when the line was too long to be kept and was tokenized while it was read
+    public String getText() {
+        return text;
+    }
+
+    public List<List<Token>> getStages() {
+        return stages;
+    }
+}
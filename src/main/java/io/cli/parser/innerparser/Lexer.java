@@ -0,0 +1,67 @@
+package io.cli.parser.innerparser;
+
+import io.cli.context.Context;
+import io.cli.parser.token.Token;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Splits a line into pipeline stages in a single pass, doing the work of {@link QuoteParser},
+ * {@link Substitutor} and {@link PipeParser} at once.
+ * <p>
+ * Tokens are offsets into the line, in a {@link TokenBuffer} that can be reused for the next line. Tokens without
+ * substitutions are not copied until their text is needed. Variables are looked up once, only outside of single
+ * quotes.
+ */
+public class Lexer {
+    public List<List<Token>> lex(String input, Context context) {
+        return lex(input, context, new TokenBuffer()).toStages();
+    }
+
+    // Variables are left in the tokens as they were written, to be substituted later
+    public List<List<Token>> lexRaw(String input) {
+        return lexRaw(input, new TokenBuffer()).toStages();
+    }
+
+    // Replaces what the buffer held before and returns it
+    public TokenBuffer lex(String input, Context context, TokenBuffer buffer) {
+        return scan(input, context, buffer);
+    }
+
+    public TokenBuffer lexRaw(String input, TokenBuffer buffer) {
+        return scan(input, null, buffer);
+    }
+
+    private static TokenBuffer scan(String input, Context context, TokenBuffer buffer) {
+        try {
+            new LineScanner(buffer.reset(input), context).run();
+            return buffer;
+        } catch (IOException e) {
+            // A string is never read from anywhere
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The end of the variable name starting at start: special parameters like ? and ! are one char long,
+    // and so are positional ones, $10 is $1 followed by 0
+    static int variableNameEnd(CharSequence text, int start) {
+        if (start < text.length() && isSpecialVariable(text.charAt(start))) {
+            return start + 1;
+        }
+        int end = start;
+        while (end < text.length() && isVariableChar(text.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    static boolean isSpecialVariable(char c) {
+        return c == '?' || c == '!' || c == '#' || c == '@' || c == '*' || (c >= '0' && c <= '9');
+    }
+
+    static boolean isVariableChar(char c) {
+        return Character.isAlphabetic(c) || Character.isDigit(c) || c == '_';
+    }
+}
@@ -0,0 +1,180 @@
+package io.cli.parser.innerparser;
+
+import io.cli.context.Context;
+import io.cli.parser.token.Token;
+import io.cli.parser.token.TokenType;
+
+import java.io.IOException;
+
+/**
+ * The shell grammar: splits one line into pipeline stages, handling quotes, variables, pipes, redirects and
+ * {@code &} in a single pass. The line ends at a newline outside of quotes or at the end of the input.
+ * <p>
+ * Variables are substituted while scanning, outside of single quotes, unless there is no context. The tokens and
+ * stages go to the source, which keeps them as the caller wants them.
+ */
+final class LineScanner {
+    private static final Token INPUT_REDIRECT = new Token(TokenType.REDIRECT, "<");
+    private static final Token OUTPUT_REDIRECT = new Token(TokenType.REDIRECT, ">");
+    private static final Token APPEND_REDIRECT = new Token(TokenType.REDIRECT, ">>");
+    private static final Token ERROR_REDIRECT = new Token(TokenType.REDIRECT, "2>");
+    private static final Token ERROR_TO_OUTPUT_REDIRECT = new Token(TokenType.REDIRECT, "2>&1");
+    static final Token BACKGROUND = new Token(TokenType.BACKGROUND, "&");
+
+    private final CharSource source;
+    private final Context context;
+
+    private TokenType state = TokenType.COMMAND;
+    private boolean tokenOpen;
+    private StringBuilder name;
+
+    LineScanner(CharSource source, Context context) {
+        this.source = source;
+        this.context = context;
+    }
+
+    void run() throws IOException {
+        char prev = ' ';
+        int next;
+        while ((next = source.read()) >= 0) {
+            char c = (char) next;
+            if (prev == '\\') {
+                keep();
+            } else if (state == TokenType.COMMAND) {
+                if (c == '\n' || (c == '\r' && source.peek(0) == '\n')) {
+                    if (c == '\r') {
+                        source.read();
+                    }
+                    break;
+                }
+                c = scanCommand(c);
+            } else if (c == (state == TokenType.DOUBLE_QUOTES ? '"' : '\'')) {
+                endToken();
+                state = TokenType.COMMAND;
+            } else if (c == '$' && state == TokenType.DOUBLE_QUOTES && context != null) {
+                c = substitute();
+            } else {
+                keep();
+            }
+            prev = c;
+        }
+
+        if (state != TokenType.COMMAND) {
+            if (!source.isTokenEmpty()) {
+                throw new IllegalStateException("Invalid: you must end quotes");
+            }
+        } else if (tokenOpen) {
+            endToken();
+        }
+        source.endLine();
+    }
+
+    // Returns the last char consumed
+    private char scanCommand(char c) throws IOException {
+        switch (c) {
+            case '"', '\'' -> {
+                if (tokenOpen) {
+                    endToken();
+                }
+                // Quoted tokens exist even when empty
+                state = c == '"' ? TokenType.DOUBLE_QUOTES : TokenType.SINGLE_QUOTES;
+                tokenOpen = true;
+            }
+            case ' ' -> {
+                if (tokenOpen) {
+                    endToken();
+                }
+            }
+            case '|' -> {
+                if (tokenOpen) {
+                    endToken();
+                }
+                source.endStage();
+            }
+            case '<', '>' -> {
+                return scanRedirect(c);
+            }
+            case '&' -> {
+                if (tokenOpen) {
+                    endToken();
+                }
+                source.addOperator(BACKGROUND);
+            }
+            case '$' -> {
+                if (context == null) {
+                    keep();
+                } else {
+                    return substitute();
+                }
+            }
+            default -> keep();
+        }
+        return c;
+    }
+
+    private char scanRedirect(char c) throws IOException {
+        // A lone "2" right before '>' is the stderr descriptor, not a word
+        if (c == '>' && tokenOpen && source.tokenIs('2')) {
+            source.dropToken();
+            tokenOpen = false;
+            if (source.peek(0) == '&' && source.peek(1) == '1') {
+                source.read();
+                source.read();
+                source.addOperator(ERROR_TO_OUTPUT_REDIRECT);
+                return '1';
+            }
+            source.addOperator(ERROR_REDIRECT);
+            return c;
+        }
+
+        if (tokenOpen) {
+            endToken();
+        }
+        if (c == '<') {
+            source.addOperator(INPUT_REDIRECT);
+        } else if (source.peek(0) == '>') {
+            source.read();
+            source.addOperator(APPEND_REDIRECT);
+            return '>';
+        } else {
+            source.addOperator(OUTPUT_REDIRECT);
+        }
+        return c;
+    }
+
+    // Special parameters like ? and ! are one char long, and so are positional ones, $10 is $1 followed by 0
+    private char substitute() throws IOException {
+        tokenOpen = true;
+        if (name == null) {
+            name = new StringBuilder();
+        }
+        name.setLength(0);
+        int next = source.peek(0);
+        if (next >= 0 && Lexer.isSpecialVariable((char) next)) {
+            name.append((char) source.read());
+        } else {
+            while ((next = source.peek(0)) >= 0 && Lexer.isVariableChar((char) next)) {
+                name.append((char) source.read());
+            }
+        }
+
+        String value = context.getVar(name.toString());
+        if (value != null) {
+            source.keep(value);
+        } else {
+            source.keep("$");
+            source.keep(name);
+        }
+        return name.isEmpty() ? '$' : name.charAt(name.length() - 1);
+    }
+
+    private void keep() {
+        tokenOpen = true;
+        source.keep();
+    }
+
+    private void endToken() {
+        source.endToken(state);
+        tokenOpen = false;
+    }
+}
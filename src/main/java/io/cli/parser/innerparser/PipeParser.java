@@ -6,6 +6,14 @@ import io.cli.parser.token.TokenType;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * The last of the three passes {@link Lexer} replaced: splits the tokens of {@link QuoteParser} into pipeline
+ * stages, words and redirects.
+ *
+ * @deprecated the shell lexes lines with {@link Lexer}, this is kept as the baseline it is tested and benchmarked
+ * against
+ */
+@Deprecated
 public class PipeParser {
     public List<List<Token>> parsePipe(List<Token> input) {
         List<List<Token>> tokens = new ArrayList<>();
@@ -25,7 +33,8 @@ public class PipeParser {
 
     private void parseToken(String str, List<Token> current, List<List<Token>> tokens) {
         StringBuilder currentToken = new StringBuilder();
-        for (char c : str.toCharArray()) {
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
             if (c == '|') {
                 if (!currentToken.isEmpty()) {
                     current.add(new Token(TokenType.COMMAND, currentToken.toString()));
@@ -34,6 +43,15 @@ public class PipeParser {
                 tokens.add(List.copyOf(current));
                 current.clear();
                 currentToken.setLength(0);
+            } else if (c == '<' || c == '>') {
+                String operator = redirectOperator(str, i, currentToken);
+                if (!currentToken.isEmpty()) {
+                    current.add(new Token(TokenType.COMMAND, currentToken.toString()));
+                    currentToken.setLength(0);
+                }
+                current.add(new Token(TokenType.REDIRECT, operator));
+                // The leading '2' of a stderr operator was consumed before reaching '>'
+                i += operator.charAt(0) == '2' ? operator.length() - 2 : operator.length() - 1;
             } else {
                 currentToken.append(c);
             }
@@ -42,4 +60,20 @@ public class PipeParser {
             current.add(new Token(TokenType.COMMAND, currentToken.toString()));
         }
     }
+
+    private static String redirectOperator(String str, int position, StringBuilder currentToken) {
+        if (str.charAt(position) == '<') {
+            return "<";
+        }
+        if (str.startsWith(">>", position)) {
+            return ">>";
+        }
+        // A lone "2" right before '>' is the stderr descriptor, not a word
+        if (currentToken.length() == 1 && currentToken.charAt(0) == '2') {
+            currentToken.setLength(0);
+            position--;
+            return str.startsWith("2>&1", position) ? "2>&1" : "2>";
+        }
+        return ">";
+    }
 }
\ No newline at end of file
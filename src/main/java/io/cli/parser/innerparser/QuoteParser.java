@@ -6,6 +6,13 @@ import io.cli.parser.token.TokenType;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * The first of the three passes {@link Lexer} replaced: splits a line at spaces outside of quotes.
+ *
+ * @deprecated the shell lexes lines with {@link Lexer}, this is kept as the baseline it is tested and benchmarked
+ * against
+ */
+@Deprecated
 public class QuoteParser {
     public List<Token> parseQuote(String input) {
         List<Token> tokens = new ArrayList<>();
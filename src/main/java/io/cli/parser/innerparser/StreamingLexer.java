@@ -0,0 +1,209 @@
+package io.cli.parser.innerparser;
+
+import io.cli.context.Context;
+import io.cli.parser.token.Token;
+import io.cli.parser.token.TokenType;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads logical lines from a {@link Reader}. A line ends at a newline outside of quotes, so quotes may span
+ * several physical lines.
+ * <p>
+ * Lines up to {@code maxLineLength} chars are returned as text. Longer lines are never held in memory as a whole:
+ * they are tokenized while being read by the same {@link LineScanner} as {@link Lexer}, so only the current token
+ * is buffered.
+ */
+public class StreamingLexer {
+    public static final int DEFAULT_MAX_LINE_LENGTH = 64 * 1024;
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Reader reader;
+    private final int maxLineLength;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+
+    public StreamingLexer(Reader reader) {
+        this(reader, DEFAULT_MAX_LINE_LENGTH);
+    }
+
+    public StreamingLexer(Reader reader, int maxLineLength) {
+        this.reader = reader;
+        this.maxLineLength = maxLineLength;
+        this.buffer = new char[maxLineLength + CHUNK_SIZE];
+    }
+
+    // Returns null once the input is over
+    public LexedLine next(Context context) throws IOException {
+        int end = findLineEnd();
+        if (end == -1) {
+            BufferSource source = new BufferSource();
+            new LineScanner(source, context).run();
+            return new LexedLine(source.stages);
+        }
+        if (end == position && endOfInput) {
+            return null;
+        }
+
+        int textEnd = end;
+        if (textEnd > position && buffer[textEnd - 1] == '\r' && textEnd < limit) {
+            textEnd--;
+        }
+        String text = new String(buffer, position, textEnd - position);
+        position = end < limit ? end + 1 : end;
+        return new LexedLine(text);
+    }
+
+    // The index of the newline ending the current line, the end of input, or -1 if the line is too long to keep
+    private int findLineEnd() throws IOException {
+        char state = 0;
+        char prev = ' ';
+        int i = position;
+        while (true) {
+            if (i == limit) {
+                if (i - position >= maxLineLength) {
+                    return -1;
+                }
+                int shift = fill();
+                if (shift < 0) {
+                    return i - (-shift - 1);
+                }
+                i -= shift;
+                continue;
+            }
+
+            char c = buffer[i];
+            if (prev != '\\') {
+                if (state == 0) {
+                    if (c == '\n') {
+                        return i;
+                    }
+                    if (c == '"' || c == '\'') {
+                        state = c;
+                    }
+                } else if (c == state) {
+                    state = 0;
+                }
+            }
+            prev = c;
+            i++;
+        }
+    }
+
+    // Moves the unread chars to the front of the buffer and reads more.
+    // Returns how far the chars moved, or -(shift + 1) when nothing more can be read.
+    private int fill() throws IOException {
+        int shift = position;
+        if (shift > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (endOfInput) {
+            return -(shift + 1);
+        }
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfInput = true;
+            return -(shift + 1);
+        }
+        limit += read;
+        return shift;
+    }
+
+    private int peek(int ahead) throws IOException {
+        while (position + ahead >= limit) {
+            if (fill() < 0) {
+                return -1;
+            }
+        }
+        return buffer[position + ahead];
+    }
+
+    private int read() throws IOException {
+        int c = peek(0);
+        if (c >= 0) {
+            position++;
+        }
+        return c;
+    }
+
+    // Tokens of a line that is not kept are copied char by char, the buffer moves under them
+    private class BufferSource implements CharSource {
+        private final List<List<Token>> stages = new ArrayList<>();
+        private List<Token> stage = new ArrayList<>();
+        private final StringBuilder token = new StringBuilder();
+        private boolean added;
+        // A peek may refill the buffer and drop the char read last
+        private char last;
+
+        @Override
+        public int read() throws IOException {
+            int c = StreamingLexer.this.read();
+            last = (char) c;
+            return c;
+        }
+
+        @Override
+        public int peek(int ahead) throws IOException {
+            return StreamingLexer.this.peek(ahead);
+        }
+
+        @Override
+        public void keep() {
+            token.append(last);
+        }
+
+        @Override
+        public void keep(CharSequence text) {
+            token.append(text);
+            added = true;
+        }
+
+        @Override
+        public boolean tokenIs(char c) {
+            return !added && token.length() == 1 && token.charAt(0) == c;
+        }
+
+        @Override
+        public boolean isTokenEmpty() {
+            return !added && token.isEmpty();
+        }
+
+        @Override
+        public void endToken(TokenType type) {
+            stage.add(new Token(type, token.toString()));
+            dropToken();
+        }
+
+        @Override
+        public void dropToken() {
+            token.setLength(0);
+            added = false;
+        }
+
+        @Override
+        public void addOperator(Token operator) {
+            stage.add(operator);
+        }
+
+        @Override
+        public void endStage() {
+            stages.add(stage);
+            stage = new ArrayList<>();
+        }
+
+        @Override
+        public void endLine() {
+            if (!stage.isEmpty()) {
+                stages.add(stage);
+            }
+        }
+    }
+}
@@ -7,58 +7,29 @@ import io.cli.parser.token.TokenType;
 import java.util.ArrayList;
 import java.util.List;
 
-import static java.lang.Character.isAlphabetic;
-
+/**
+ * The middle one of the three passes {@link Lexer} replaced: substitutes the variables of the tokens of
+ * {@link QuoteParser} through their {@link TokenTemplate}s.
+ *
+ * @deprecated shells substitute through the templates of their cached plans, this is kept as the baseline the
+ * lexer is tested and benchmarked against
+ */
+@Deprecated
 public class Substitutor {
     public List<Token> substitute(List<Token> input, Context context) {
-        List<Token> result = new ArrayList<>();
+        List<Token> result = new ArrayList<>(input.size());
 
         for (Token token : input) {
-            if (token.getType() == TokenType.SINGLE_QUOTES) {
-                result.add(token);
-            } else {
-                result.add(new Token(token.getType(), substituteVariables(token.getInput(), context)));
-            }
+            result.add(substitute(token, context));
         }
 
         return result;
     }
 
-    private String substituteVariables(String str, Context context) {
-        StringBuilder result = new StringBuilder();
-        int i = 0;
-        StringBuilder varBuilder = new StringBuilder();
-        boolean startSubstitute = false;
-        while (i < str.length()) {
-            if (startSubstitute) {
-                // TODO: Add check for the first symbol
-                if (Character.isAlphabetic(str.charAt(i)) || Character.isDigit(str.charAt(i)) || str.charAt(i) == '_' || str.charAt(i) == '?') {
-                    varBuilder.append(str.charAt(i));
-                    i++;
-                } else {
-                    if (context.getVar(varBuilder.toString()) != null) {
-                        result.append(context.getVar(varBuilder.toString()));
-                    } else {
-                        result.append('$').append(varBuilder);
-                    }
-                    startSubstitute = false;
-                }
-            } else if (str.charAt(i) == '$' && (i == 0 || str.charAt(i - 1) != '\\')) {
-                startSubstitute = true;
-                varBuilder.setLength(0);
-                i++;
-            } else {
-                result.append(str.charAt(i));
-                i++;
-            }
-        }
-        if (startSubstitute) {
-            if (context.getVar(varBuilder.toString()) != null) {
-                result.append(context.getVar(varBuilder.toString()));
-            } else {
-                result.append('$').append(varBuilder);
-            }
+    public Token substitute(Token token, Context context) {
+        if (token.getType() == TokenType.SINGLE_QUOTES || token.getInput().indexOf('$') < 0) {
+            return token;
         }
-        return result.toString();
+        return TokenTemplate.compile(token).substitute(context);
     }
-}
\ No newline at end of file
+}
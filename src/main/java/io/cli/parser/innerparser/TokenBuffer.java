@@ -0,0 +1,228 @@
+package io.cli.parser.innerparser;
+
+import io.cli.context.Context;
+import io.cli.parser.token.Token;
+import io.cli.parser.token.TokenType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The tokens of one line as offsets into it, filled by {@link Lexer#lex(String, Context, TokenBuffer)}.
+ * <p>
+ * There is no {@link Token} per word and no list per stage: types, offsets and stage ends are kept in arrays that
+ * are reused for the next line, so lexing into the same buffer again and again allocates next to nothing. Text
+ * that is not in the line, like the value of a variable, is appended to a builder of the buffer and the token
+ * points there instead. {@link #toStages()} turns the line into the tokens the rest of the shell works with.
+ */
+public class TokenBuffer {
+    private static final int INITIAL_TOKENS = 16;
+    private static final int INITIAL_STAGES = 4;
+
+    private final Source source = new Source();
+    private final StringBuilder values = new StringBuilder();
+    private String line;
+
+    private TokenType[] types = new TokenType[INITIAL_TOKENS];
+    private int[] starts = new int[INITIAL_TOKENS];
+    private int[] ends = new int[INITIAL_TOKENS];
+    // The text of the token is in values, not in the line
+    private boolean[] substituted = new boolean[INITIAL_TOKENS];
+    // Redirects and & are shared constants, null for the words
+    private Token[] operators = new Token[INITIAL_TOKENS];
+    private int size;
+
+    private int[] stageEnds = new int[INITIAL_STAGES];
+    private int stageCount;
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType getType(int index) {
+        return types[checkIndex(index)];
+    }
+
+    public String getText(int index) {
+        checkIndex(index);
+        if (operators[index] != null) {
+            return operators[index].getInput();
+        }
+        return substituted[index] ? values.substring(starts[index], ends[index]) : line.substring(starts[index], ends[index]);
+    }
+
+    // Words of the line stay slices of it until their text is asked for
+    public Token getToken(int index) {
+        checkIndex(index);
+        if (operators[index] != null) {
+            return operators[index];
+        }
+        return substituted[index]
+                ? new Token(types[index], values.substring(starts[index], ends[index]))
+                : new Token(types[index], line, starts[index], ends[index]);
+    }
+
+    public int getStageCount() {
+        return stageCount;
+    }
+
+    // The index of the first token of the stage
+    public int getStageStart(int stage) {
+        return Objects.checkIndex(stage, stageCount) == 0 ? 0 : stageEnds[stage - 1];
+    }
+
+    // The index after the last token of the stage
+    public int getStageEnd(int stage) {
+        return stageEnds[Objects.checkIndex(stage, stageCount)];
+    }
+
+    public List<List<Token>> toStages() {
+        List<List<Token>> stages = new ArrayList<>(stageCount);
+        for (int stage = 0; stage < stageCount; stage++) {
+            int end = getStageEnd(stage);
+            List<Token> tokens = new ArrayList<>(end - getStageStart(stage));
+            for (int i = getStageStart(stage); i < end; i++) {
+                tokens.add(getToken(i));
+            }
+            stages.add(tokens);
+        }
+        return stages;
+    }
+
+    // Forgets the previous line and returns the source the scanner reads the new one from
+    CharSource reset(String line) {
+        this.line = line;
+        values.setLength(0);
+        Arrays.fill(operators, 0, size, null);
+        size = 0;
+        stageCount = 0;
+        source.reset();
+        return source;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return index;
+    }
+
+    private void add(TokenType type, int start, int end, boolean inValues, Token operator) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            substituted = Arrays.copyOf(substituted, capacity);
+            operators = Arrays.copyOf(operators, capacity);
+        }
+        types[size] = type;
+        starts[size] = start;
+        ends[size] = end;
+        substituted[size] = inValues;
+        operators[size] = operator;
+        size++;
+    }
+
+    private void addStage() {
+        if (stageCount == stageEnds.length) {
+            stageEnds = Arrays.copyOf(stageEnds, stageCount * 2);
+        }
+        stageEnds[stageCount++] = size;
+    }
+
+    // Tokens stay offsets into the line until text that is not in the line, like a variable value, is added
+    private class Source implements CharSource {
+        private int position;
+        private int tokenStart;
+        private int tokenEnd;
+        // Where the current token starts in values, once it was copied there
+        private int valueStart;
+
+        void reset() {
+            position = 0;
+            dropToken();
+        }
+
+        @Override
+        public int read() {
+            return position < line.length() ? line.charAt(position++) : -1;
+        }
+
+        @Override
+        public int peek(int ahead) {
+            return position + ahead < line.length() ? line.charAt(position + ahead) : -1;
+        }
+
+        @Override
+        public void keep() {
+            if (valueStart >= 0) {
+                values.append(line.charAt(position - 1));
+            } else if (tokenStart < 0) {
+                tokenStart = position - 1;
+                tokenEnd = position;
+            } else {
+                // Kept chars are always consecutive while nothing else was added
+                tokenEnd = position;
+            }
+        }
+
+        @Override
+        public void keep(CharSequence text) {
+            if (valueStart < 0) {
+                valueStart = values.length();
+                if (tokenStart >= 0) {
+                    values.append(line, tokenStart, tokenEnd);
+                }
+            }
+            values.append(text);
+        }
+
+        @Override
+        public boolean tokenIs(char c) {
+            return valueStart < 0 && tokenStart >= 0 && tokenEnd - tokenStart == 1 && line.charAt(tokenStart) == c;
+        }
+
+        @Override
+        public boolean isTokenEmpty() {
+            return valueStart < 0 && tokenStart < 0;
+        }
+
+        @Override
+        public void endToken(TokenType type) {
+            if (valueStart >= 0) {
+                add(type, valueStart, values.length(), true, null);
+            } else if (tokenStart < 0) {
+                add(type, 0, 0, false, null);
+            } else {
+                add(type, tokenStart, tokenEnd, false, null);
+            }
+            dropToken();
+        }
+
+        @Override
+        public void dropToken() {
+            tokenStart = -1;
+            valueStart = -1;
+        }
+
+        @Override
+        public void addOperator(Token operator) {
+            add(operator.getType(), 0, 0, false, operator);
+        }
+
+        @Override
+        public void endStage() {
+            addStage();
+        }
+
+        @Override
+        public void endLine() {
+            if (size > (stageCount == 0 ? 0 : stageEnds[stageCount - 1])) {
+                addStage();
+            }
+        }
+    }
+}
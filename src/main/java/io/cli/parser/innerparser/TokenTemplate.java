@@ -0,0 +1,109 @@
+package io.cli.parser.innerparser;
+
+import io.cli.context.Context;
+import io.cli.parser.token.Token;
+import io.cli.parser.token.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A token with its {@code $VAR} references compiled into slots, so it can be substituted again and again
+ * without scanning the text.
+ */
+public class TokenTemplate {
+    private final TokenType type;
+    private final String text;
+    private final String[] literals;
+    private final String[] variables;
+    private final int literalsLength;
+    private final Token constant;
+
+    private TokenTemplate(Token constant) {
+        this.type = constant.getType();
+        this.text = constant.getInput();
+        this.literals = null;
+        this.variables = null;
+        this.literalsLength = 0;
+        this.constant = constant;
+    }
+
+    private TokenTemplate(TokenType type, String text, List<String> literals, List<String> variables) {
+        this.type = type;
+        this.text = text;
+        this.literals = literals.toArray(String[]::new);
+        this.variables = variables.toArray(String[]::new);
+        this.literalsLength = literals.stream().mapToInt(String::length).sum();
+        this.constant = null;
+    }
+
+    // A template of a token that is already substituted
+    public static TokenTemplate constant(Token token) {
+        return new TokenTemplate(token);
+    }
+
+    public static TokenTemplate compile(Token raw) {
+        String text = raw.getInput();
+        if (raw.getType() == TokenType.SINGLE_QUOTES || raw.getType() == TokenType.REDIRECT || text.indexOf('$') < 0) {
+            return new TokenTemplate(raw);
+        }
+
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        int segmentStart = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) != '$' || (i > 0 && text.charAt(i - 1) == '\\')) {
+                continue;
+            }
+            int nameEnd = Lexer.variableNameEnd(text, i + 1);
+            if (nameEnd == i + 1) {
+                continue;
+            }
+            literals.add(text.substring(segmentStart, i));
+            variables.add(text.substring(i + 1, nameEnd));
+            segmentStart = nameEnd;
+            i = nameEnd - 1;
+        }
+
+        if (variables.isEmpty()) {
+            return new TokenTemplate(raw);
+        }
+        literals.add(text.substring(segmentStart));
+        return new TokenTemplate(raw.getType(), text, literals, variables);
+    }
+
+    public TokenType getType() {
+        return type;
+    }
+
+    // The text as it was written, with the variable references in place
+    public String getText() {
+        return text;
+    }
+
+    public boolean isConstant() {
+        return constant != null;
+    }
+
+    public Token substitute(Context context) {
+        if (constant != null) {
+            return constant;
+        }
+
+        // One lookup per reference, then a single append pass into a builder of the exact size
+        String[] values = new String[variables.length];
+        int length = literalsLength;
+        for (int i = 0; i < variables.length; i++) {
+            String value = context.getVar(variables[i]);
+            values[i] = value != null ? value : "$" + variables[i];
+            length += values[i].length();
+        }
+
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < variables.length; i++) {
+            builder.append(literals[i]).append(values[i]);
+        }
+        builder.append(literals[variables.length]);
+        return new Token(type, builder.toString());
+    }
+}
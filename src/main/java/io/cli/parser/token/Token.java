@@ -5,19 +5,38 @@ import java.util.Objects;
 
 public class Token {
     private final TokenType type;
-    private final String input;
+    private final String source;
+    private final int start;
+    private final int end;
+    private String input;
 
     public Token(TokenType type, String input) {
         this.type = type;
+        this.source = input;
+        this.start = 0;
+        this.end = input.length();
         this.input = input;
     }
 
+    // The text is a slice of the source line and only becomes a separate string when somebody asks for it
+    public Token(TokenType type, String source, int start, int end) {
+        this.type = type;
+        this.source = source;
+        this.start = start;
+        this.end = end;
+    }
+
     public TokenType getType() {
         return type;
     }
 
     public String getInput() {
-        return input;
+        String result = input;
+        if (result == null) {
+            result = source.substring(start, end);
+            input = result;
+        }
+        return result;
     }
 
     @Override
@@ -25,19 +44,19 @@ public class Token {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         Token token = (Token) obj;
-        return type == token.type && input.equals(token.input);
+        return type == token.type && getInput().equals(token.getInput());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(type, input);
+        return Objects.hash(type, getInput());
     }
 
     @Override
     public String toString() {
         return "Token{" +
                 "type=" + type +
-                ", command='" + input + '\'' +
+                ", command='" + getInput() + '\'' +
                 '}';
     }
 }
@@ -3,5 +3,7 @@ package io.cli.parser.token;
 public enum TokenType {
     DOUBLE_QUOTES,
     SINGLE_QUOTES,
-    COMMAND
+    COMMAND,
+    REDIRECT,
+    BACKGROUND
 }
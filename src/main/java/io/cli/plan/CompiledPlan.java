@@ -0,0 +1,86 @@
+package io.cli.plan;
+
+import io.cli.command.CommandRegistry;
+import io.cli.context.Context;
+import io.cli.executor.Stage;
+import io.cli.parser.innerparser.TokenTemplate;
+import io.cli.parser.token.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CompiledPlan {
+    private final List<CompiledStage> stages;
+    private final boolean background;
+    private final boolean timed;
+
+    public CompiledPlan(List<CompiledStage> stages, boolean background, boolean timed) {
+        this.stages = stages;
+        this.background = background;
+        this.timed = timed;
+    }
+
+    public CompiledPlan(List<CompiledStage> stages, boolean background) {
+        this(stages, background, false);
+    }
+
+    // A trailing & runs the whole pipeline as a background job, a leading unquoted time profiles it
+    public static CompiledPlan compile(List<List<TokenTemplate>> stages) {
+        boolean timed = false;
+        if (!stages.isEmpty() && !stages.getFirst().isEmpty() && isTimeKeyword(stages.getFirst().getFirst())) {
+            timed = true;
+            List<TokenTemplate> first = stages.getFirst();
+            if (first.size() == 1 && stages.size() > 1) {
+                throw new IllegalStateException("Invalid: time must be followed by a command");
+            }
+            stages = new ArrayList<>(stages);
+            if (first.size() == 1) {
+                stages.clear();
+            } else {
+                stages.set(0, first.subList(1, first.size()));
+            }
+        }
+
+        boolean background = false;
+        if (!stages.isEmpty() && !stages.getLast().isEmpty()
+                && stages.getLast().getLast().getType() == TokenType.BACKGROUND) {
+            background = true;
+            List<TokenTemplate> last = stages.getLast();
+            if (last.size() == 1) {
+                throw new IllegalStateException("Invalid: & must follow a command");
+            }
+            stages = new ArrayList<>(stages);
+            stages.set(stages.size() - 1, last.subList(0, last.size() - 1));
+        }
+        return new CompiledPlan(stages.stream().map(CompiledStage::compile).toList(), background, timed);
+    }
+
+    private static boolean isTimeKeyword(TokenTemplate token) {
+        return token.getType() == TokenType.COMMAND && token.isConstant() && token.getText().equals("time");
+    }
+
+    public List<CompiledStage> getStages() {
+        return stages;
+    }
+
+    public boolean isBackground() {
+        return background;
+    }
+
+    public boolean isTimed() {
+        return timed;
+    }
+
+    // The name of the first command, which names the whole pipeline in metrics
+    public String getCommandName() {
+        return stages.isEmpty() ? "" : stages.getFirst().getName();
+    }
+
+    public List<Stage> instantiate(Context context, CommandRegistry commandRegistry) {
+        List<Stage> result = new ArrayList<>(stages.size());
+        for (CompiledStage stage : stages) {
+            result.add(stage.instantiate(context, commandRegistry));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,86 @@
+package io.cli.plan;
+
+import io.cli.command.CommandRegistry;
+import io.cli.context.Context;
+import io.cli.executor.Redirect;
+import io.cli.executor.RedirectType;
+import io.cli.executor.Stage;
+import io.cli.parser.innerparser.TokenTemplate;
+import io.cli.parser.token.Token;
+import io.cli.parser.token.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class CompiledStage {
+    private final List<TokenTemplate> args;
+    private final List<RedirectType> redirectTypes;
+    private final List<TokenTemplate> redirectTargets;
+    private final String description;
+
+    private CompiledStage(List<TokenTemplate> args,
+                          List<RedirectType> redirectTypes,
+                          List<TokenTemplate> redirectTargets,
+                          String description
+    ) {
+        this.args = args;
+        this.redirectTypes = redirectTypes;
+        this.redirectTargets = redirectTargets;
+        this.description = description;
+    }
+
+    public static CompiledStage compile(List<TokenTemplate> tokens) {
+        List<TokenTemplate> args = new ArrayList<>(tokens.size());
+        List<RedirectType> redirectTypes = new ArrayList<>();
+        List<TokenTemplate> redirectTargets = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            TokenTemplate token = tokens.get(i);
+            if (token.getType() == TokenType.BACKGROUND) {
+                throw new IllegalStateException("Invalid: & must end the command");
+            }
+            if (token.getType() != TokenType.REDIRECT) {
+                args.add(token);
+                continue;
+            }
+
+            RedirectType type = RedirectType.fromOperator(token.getText()).orElseThrow();
+            TokenTemplate target = null;
+            if (type.hasTarget()) {
+                if (i + 1 == tokens.size() || tokens.get(i + 1).getType() == TokenType.REDIRECT) {
+                    throw new IllegalStateException("Invalid: %s must be followed by a file".formatted(type.getOperator()));
+                }
+                target = tokens.get(++i);
+            }
+            redirectTypes.add(type);
+            redirectTargets.add(target);
+        }
+        String description = tokens.stream().map(TokenTemplate::getText).collect(Collectors.joining(" "));
+        return new CompiledStage(List.copyOf(args), List.copyOf(redirectTypes), redirectTargets, description);
+    }
+
+    // The command name as written, e.g. $cmd when it comes from a variable, or empty for a stage of redirects only.
+    // An assignment is named after its variable, its value would make every line a new name.
+    public String getName() {
+        if (args.isEmpty()) {
+            return "";
+        }
+        String name = args.getFirst().getText();
+        int equals = name.indexOf('=');
+        return equals > 0 ? name.substring(0, equals + 1) : name;
+    }
+
+    public Stage instantiate(Context context, CommandRegistry commandRegistry) {
+        List<Token> tokens = new ArrayList<>(args.size());
+        for (TokenTemplate arg : args) {
+            tokens.add(arg.substitute(context));
+        }
+
+        List<Redirect> redirects = new ArrayList<>(redirectTypes.size());
+        for (int i = 0; i < redirectTypes.size(); i++) {
+            TokenTemplate target = redirectTargets.get(i);
+            redirects.add(new Redirect(redirectTypes.get(i), target == null ? null : target.substitute(context).getInput()));
+        }
+        return new Stage(commandRegistry.newCommand(tokens), redirects, description);
+    }
+}
@@ -0,0 +1,97 @@
+package io.cli.plan;
+
+import io.cli.context.Context;
+import io.cli.parser.ParserOrchestrator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the compiled plans of the most recently used input lines.
+ * <p>
+ * A plan only depends on the text of the line, the command factories and {@code PATH}, so it is dropped when
+ * {@code PATH} changes or when {@link #invalidate()} is called after the builtins change.
+ * Variables are substituted every time the plan is instantiated.
+ */
+public class PlanCache {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final ParserOrchestrator parserOrchestrator;
+    private final Context context;
+    private final Map<String, CompiledPlan> plans;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private long generation;
+    private String path;
+
+    public PlanCache(ParserOrchestrator parserOrchestrator, Context context) {
+        this(parserOrchestrator, context, DEFAULT_CAPACITY);
+    }
+
+    public PlanCache(ParserOrchestrator parserOrchestrator, Context context, int capacity) {
+        this.parserOrchestrator = parserOrchestrator;
+        this.context = context;
+        this.plans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledPlan> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.path = context.getVar("PATH");
+    }
+
+    public CompiledPlan get(String input) {
+        String currentPath = context.getVar("PATH");
+        long compiledGeneration;
+        synchronized (plans) {
+            if (!Objects.equals(path, currentPath)) {
+                path = currentPath;
+                clear();
+            }
+            CompiledPlan plan = plans.get(input);
+            if (plan != null) {
+                hits.increment();
+                return plan;
+            }
+            compiledGeneration = generation;
+        }
+
+        misses.increment();
+        CompiledPlan plan = CompiledPlan.compile(parserOrchestrator.compile(input));
+        synchronized (plans) {
+            // A plan compiled before an invalidation may already be stale
+            if (compiledGeneration == generation) {
+                plans.put(input, plan);
+            }
+        }
+        return plan;
+    }
+
+    public void invalidate() {
+        synchronized (plans) {
+            clear();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        synchronized (plans) {
+            return plans.size();
+        }
+    }
+
+    private void clear() {
+        plans.clear();
+        generation++;
+    }
+}
@@ -0,0 +1,30 @@
+package io.cli.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Sends everything written to it as frames of one type, the connection is shared with other frame types
+class FrameOutputStream extends OutputStream {
+    private final FrameWriter connection;
+    private final byte type;
+
+    FrameOutputStream(FrameWriter connection, byte type) {
+        this.connection = connection;
+        this.type = type;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            int frameLength = Math.min(length, ShellProtocol.MAX_FRAME_SIZE);
+            connection.writeFrame(type, bytes, offset, frameLength);
+            offset += frameLength;
+            length -= frameLength;
+        }
+    }
+}
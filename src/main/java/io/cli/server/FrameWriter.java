@@ -0,0 +1,39 @@
+package io.cli.server;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Writers of different streams share the connection, a frame is written whole or not at all.
+// A lock rather than synchronized: a writer waiting on a slow client must not pin the carrier thread.
+class FrameWriter {
+    private final DataOutputStream out;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    FrameWriter(DataOutputStream out) {
+        this.out = out;
+    }
+
+    void writeFrame(byte type, byte[] bytes, int offset, int length) throws IOException {
+        lock.lock();
+        try {
+            out.writeByte(type);
+            out.writeInt(length);
+            out.write(bytes, offset, length);
+            out.flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void writeExit(int exitCode) throws IOException {
+        lock.lock();
+        try {
+            out.writeByte(ShellProtocol.EXIT);
+            out.writeInt(exitCode);
+            out.flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
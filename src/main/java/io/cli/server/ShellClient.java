@@ -0,0 +1,104 @@
+package io.cli.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a command in a {@link ShellServer}: takes the arguments of {@code cli}, forwards them with the environment,
+ * the working directory and stdin, prints what the server sends back and exits with its exit code.
+ * <p>
+ * Only loads the classes it needs to talk to the socket, the parser and the commands stay in the server.
+ */
+public class ShellClient {
+    private static final int STDIN_CHUNK_SIZE = 16 * 1024;
+
+    private ShellClient() {
+    }
+
+    public static void main(String[] args) {
+        Path socket = ShellProtocol.socketPath();
+        int exitCode;
+        try {
+            exitCode = run(socket, List.of(args), System.getenv(), System.getProperty("user.dir"),
+                    System.in, System.out, System.err);
+        } catch (IOException e) {
+            System.err.println("cli: " + socket + ": " + e.getMessage());
+            exitCode = 1;
+        }
+        System.out.flush();
+        System.exit(exitCode);
+    }
+
+    public static int run(Path socket,
+                          List<String> args,
+                          Map<String, String> environment,
+                          String directory,
+                          InputStream stdin,
+                          OutputStream stdout,
+                          OutputStream stderr
+    ) throws IOException {
+        // Another user's socket would get the environment and stdin, and run the command as that user
+        ShellProtocol.checkOwner(socket.toAbsolutePath().getParent());
+        ShellProtocol.checkOwner(socket);
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            ShellProtocol.writeRequest(out, new ShellProtocol.Request(args, environment, directory));
+
+            // A daemon thread, so a command that never reads stdin does not keep the client waiting for it
+            Thread.ofPlatform().daemon().name("cli-stdin").start(() -> writeStdin(stdin, new FrameWriter(out)));
+            return readOutput(in, stdout, stderr);
+        }
+    }
+
+    private static int readOutput(DataInputStream in, OutputStream stdout, OutputStream stderr) throws IOException {
+        byte[] buffer = new byte[ShellProtocol.MAX_FRAME_SIZE];
+        try {
+            while (true) {
+                byte type = in.readByte();
+                int length = in.readInt();
+                if (type == ShellProtocol.EXIT) {
+                    stdout.flush();
+                    stderr.flush();
+                    return length;
+                }
+                if (length < 0 || length > buffer.length) {
+                    throw new IOException("Invalid frame");
+                }
+                in.readFully(buffer, 0, length);
+                OutputStream target = type == ShellProtocol.STDERR ? stderr : stdout;
+                target.write(buffer, 0, length);
+                if (in.available() == 0) {
+                    target.flush();
+                }
+            }
+        } catch (EOFException e) {
+            throw new IOException("The server closed the connection");
+        }
+    }
+
+    private static void writeStdin(InputStream stdin, FrameWriter out) {
+        byte[] buffer = new byte[STDIN_CHUNK_SIZE];
+        try {
+            int bytesRead;
+            while ((bytesRead = stdin.read(buffer)) != -1) {
+                out.writeFrame(ShellProtocol.STDIN, buffer, 0, bytesRead);
+            }
+            out.writeFrame(ShellProtocol.STDIN_EOF, buffer, 0, 0);
+        } catch (IOException e) {
+            // The command finished and the connection is closed, the rest of stdin is not needed
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package io.cli.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What a client and the shell server exchange over the socket.
+ * <p>
+ * The client opens with a request: a magic number, the arguments, the environment and the working directory.
+ * Then both sides send frames of a type byte, a length and as many bytes: the client sends its stdin and an end of
+ * input, the server sends stdout and stderr and finally the exit code, after which it closes the connection.
+ * Strings are a length followed by UTF-8 bytes.
+ * <p>
+ * Whoever can connect runs commands as the user of the server, so the socket lives in a directory of that user
+ * that nobody else can enter, and both sides check who owns it.
+ */
+final class ShellProtocol {
+    static final String SOCKET_VARIABLE = "CLI_SOCKET";
+    static final String SOCKET_NAME = "cli.sock";
+    static final Set<PosixFilePermission> DIRECTORY_PERMISSIONS = PosixFilePermissions.fromString("rwx------");
+    static final Set<PosixFilePermission> SOCKET_PERMISSIONS = PosixFilePermissions.fromString("rw-------");
+
+    static final int MAGIC = 0x434C4901;
+    static final byte STDIN = 0;
+    static final byte STDIN_EOF = 1;
+    static final byte STDOUT = 2;
+    static final byte STDERR = 3;
+    static final byte EXIT = 4;
+
+    // Frames are not larger than this, the reading side may keep a buffer of this size
+    static final int MAX_FRAME_SIZE = 64 * 1024;
+
+    private ShellProtocol() {
+    }
+
+    record Request(List<String> args, Map<String, String> environment, String directory) {
+    }
+
+    // $CLI_SOCKET, or cli.sock in $XDG_RUNTIME_DIR/cli, or in ~/.cli without a runtime directory
+    static Path socketPath() {
+        String socket = System.getenv(SOCKET_VARIABLE);
+        if (socket != null && !socket.isEmpty()) {
+            return Path.of(socket);
+        }
+        String runtimeDirectory = System.getenv("XDG_RUNTIME_DIR");
+        if (runtimeDirectory != null && !runtimeDirectory.isEmpty()) {
+            return Path.of(runtimeDirectory, "cli", SOCKET_NAME);
+        }
+        return Path.of(System.getProperty("user.home"), ".cli", SOCKET_NAME);
+    }
+
+    // Creates the directory of the socket for the user only, or checks that an existing one is the user's
+    static void createSocketDirectory(Path socket) throws IOException {
+        Path directory = socket.toAbsolutePath().getParent();
+        if (!Files.isDirectory(directory)) {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(DIRECTORY_PERMISSIONS));
+            // The mode given at creation is reduced by the umask
+            Files.setPosixFilePermissions(directory, DIRECTORY_PERMISSIONS);
+        }
+        checkOwner(directory);
+    }
+
+    // Fails unless the file is owned by the user running this JVM, a symbolic link is checked itself
+    static void checkOwner(Path path) throws IOException {
+        UserPrincipal owner = Files.getOwner(path, LinkOption.NOFOLLOW_LINKS);
+        UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!owner.equals(user)) {
+            throw new IOException(path + " is owned by " + owner.getName() + ", not by " + user.getName());
+        }
+    }
+
+    static void writeRequest(DataOutputStream out, Request request) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(request.args().size());
+        for (String arg : request.args()) {
+            writeString(out, arg);
+        }
+        out.writeInt(request.environment().size());
+        for (Map.Entry<String, String> entry : request.environment().entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+        writeString(out, request.directory());
+        out.flush();
+    }
+
+    static Request readRequest(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a shell client");
+        }
+        int argCount = readCount(in);
+        List<String> args = new ArrayList<>(argCount);
+        for (int i = 0; i < argCount; i++) {
+            args.add(readString(in));
+        }
+        int variableCount = readCount(in);
+        Map<String, String> environment = new LinkedHashMap<>();
+        for (int i = 0; i < variableCount; i++) {
+            environment.put(readString(in), readString(in));
+        }
+        return new Request(args, environment, readString(in));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readCount(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > 16 * 1024 * 1024) {
+            throw new IOException("Invalid length " + count);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,169 @@
+package io.cli.server;
+
+import io.cli.Main;
+import io.cli.Shell;
+import io.cli.context.Context;
+import io.cli.executor.pipe.BytePipe;
+import io.cli.metrics.Metrics;
+import io.cli.session.Session;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs shells for {@link ShellClient}s in a JVM that stays warm, so a command from a hook script does not pay for
+ * starting a JVM and loading the shell.
+ * <p>
+ * Every connection gets a virtual thread and a shell of its own, with a {@link Session} holding the client's
+ * environment, its directory and the streams forwarded over the connection. The arguments are those of {@code cli}:
+ * {@code -c}, a script, or nothing to read the script from the client's stdin. The metrics are shared by all
+ * connections.
+ */
+public class ShellServer implements Closeable {
+    private static final int STDIN_CAPACITY = 64 * 1024;
+    private static final int STDOUT_BUFFER_SIZE = 8 * 1024;
+
+    private final Path socket;
+    private final Metrics metrics;
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private ServerSocketChannel serverChannel;
+
+    public ShellServer(Path socket, Metrics metrics) {
+        this.socket = socket;
+        this.metrics = metrics;
+    }
+
+    // The socket of a server started without a path, also the one the client connects to
+    public static Path defaultSocket() {
+        return ShellProtocol.socketPath();
+    }
+
+    public synchronized void bind() throws IOException {
+        ShellProtocol.createSocketDirectory(socket);
+        if (Files.exists(socket, LinkOption.NOFOLLOW_LINKS)) {
+            deleteStaleSocket();
+        }
+        serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        serverChannel.bind(UnixDomainSocketAddress.of(socket));
+        // Nobody else can enter the directory before this, the socket is private on its own as well
+        Files.setPosixFilePermissions(socket, ShellProtocol.SOCKET_PERMISSIONS);
+    }
+
+    // A socket file left by a server that is gone would make the bind fail, one that is served is left alone
+    private void deleteStaleSocket() throws IOException {
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        } catch (ConnectException e) {
+            Files.delete(socket);
+            return;
+        }
+        channel.close();
+        throw new IOException("A server is already listening");
+    }
+
+    // Accepts connections until the server is closed
+    public void serve() throws IOException {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            }
+            activeSessions.incrementAndGet();
+            Thread.ofVirtual().name("shell-session").start(() -> {
+                try {
+                    handle(channel);
+                } finally {
+                    activeSessions.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (serverChannel != null) {
+            serverChannel.close();
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        try (channel) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            FrameWriter out = new FrameWriter(
+                    new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel))));
+            ShellProtocol.Request request = ShellProtocol.readRequest(in);
+
+            Context context = new Context();
+            request.environment().forEach((key, value) -> context.setVar(key, value, true));
+
+            BytePipe stdin = new BytePipe(STDIN_CAPACITY);
+            Thread.ofVirtual().name("shell-stdin").start(() -> readStdin(in, stdin));
+            // Like on a terminal every line goes out at once, the buffer only joins the pieces of a line
+            PrintStream stdout = new PrintStream(
+                    new BufferedOutputStream(new FrameOutputStream(out, ShellProtocol.STDOUT), STDOUT_BUFFER_SIZE), true);
+            PrintStream stderr = new PrintStream(new FrameOutputStream(out, ShellProtocol.STDERR), true);
+            // Commands see the client's environment only, not the one the server was started with
+            Session session = new Session(context, Path.of(request.directory()), stdin.inputStream(), stdout, stderr,
+                    false);
+
+            int exitCode;
+            try {
+                exitCode = Main.newShell(session, metrics, false).runArguments(request.args());
+            } catch (RuntimeException e) {
+                stderr.println(Shell.NAME + ": " + e.getMessage());
+                exitCode = 1;
+            }
+            stdout.flush();
+            out.writeExit(exitCode);
+            // Stops the reader if it is still writing, closing the connection stops it if it is waiting for frames
+            stdin.closeReader();
+        } catch (IOException e) {
+            // The client went away, there is nobody to report to
+        }
+    }
+
+    // Feeds the stdin frames of the client to the session until it sends the end of its input
+    private static void readStdin(DataInputStream in, BytePipe stdin) {
+        OutputStream pipe = stdin.outputStream();
+        byte[] buffer = new byte[ShellProtocol.MAX_FRAME_SIZE];
+        try (pipe) {
+            while (in.readByte() == ShellProtocol.STDIN) {
+                int length = ShellProtocol.readCount(in);
+                if (length > buffer.length) {
+                    return;
+                }
+                in.readFully(buffer, 0, length);
+                pipe.write(buffer, 0, length);
+                // The client sends what its stdin had, a command waiting for it must get it now
+                pipe.flush();
+            }
+        } catch (IOException e) {
+            // The client closed the connection or the session stopped reading, either way the input is over
+        }
+    }
+}
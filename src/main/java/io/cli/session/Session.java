@@ -0,0 +1,116 @@
+package io.cli.session;
+
+import io.cli.context.Context;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+
+/**
+ * Everything one shell owns: its variables, its stdin, stdout and stderr, and its working directory.
+ * <p>
+ * Commands, the executor and the orchestrator only read and write through the session of their shell, so any
+ * number of shells can run side by side in one JVM. The working directory is kept in {@code $PWD}, like any shell
+ * does, and is the JVM's own directory until it is set.
+ * <p>
+ * Child processes get the environment of the JVM with the exported variables on top, unless the session has an
+ * environment of its own, like the sessions of a server, which must not pass on the server's variables.
+ * <p>
+ * Only the session of the shell the JVM was started as is attached to the terminal: its streams are the JVM's own
+ * file descriptors, which processes can inherit and builtins show line by line. Whatever the streams of any other
+ * session are connected to, they only reach it through the JVM.
+ */
+public class Session {
+    private final Context context;
+    private final InputStream in;
+    private final PrintStream out;
+    private final PrintStream err;
+    private final boolean inheritsEnvironment;
+    private final boolean attachedToTerminal;
+
+    // The session of the shell the JVM was started as, on its standard streams
+    public Session(Context context) {
+        this(context, System.in, System.out, System.err, true, true);
+    }
+
+    public Session(Context context, InputStream in, PrintStream out, PrintStream err) {
+        this(context, in, out, err, true);
+    }
+
+    public Session(Context context, InputStream in, PrintStream out, PrintStream err, boolean inheritsEnvironment) {
+        this(context, in, out, err, inheritsEnvironment, false);
+    }
+
+    private Session(Context context,
+                    InputStream in,
+                    PrintStream out,
+                    PrintStream err,
+                    boolean inheritsEnvironment,
+                    boolean attachedToTerminal
+    ) {
+        this.context = context;
+        this.in = in;
+        this.out = out;
+        this.err = err;
+        this.inheritsEnvironment = inheritsEnvironment;
+        this.attachedToTerminal = attachedToTerminal;
+    }
+
+    // A session starting in the given directory, which is exported like the rest of the environment
+    public Session(Context context, Path directory, InputStream in, PrintStream out, PrintStream err) {
+        this(context, directory, in, out, err, true);
+    }
+
+    public Session(Context context,
+                   Path directory,
+                   InputStream in,
+                   PrintStream out,
+                   PrintStream err,
+                   boolean inheritsEnvironment
+    ) {
+        this(context, in, out, err, inheritsEnvironment);
+        context.setVar(Context.WORKING_DIRECTORY_VARIABLE, directory.toString(), true);
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    public InputStream getIn() {
+        return in;
+    }
+
+    public PrintStream getOut() {
+        return out;
+    }
+
+    public PrintStream getErr() {
+        return err;
+    }
+
+    // Whether child processes start from the environment of the JVM or only from the exported variables
+    public boolean inheritsEnvironment() {
+        return inheritsEnvironment;
+    }
+
+    // Whether in, out and err are the JVM's standard streams
+    public boolean isAttachedToTerminal() {
+        return attachedToTerminal;
+    }
+
+    // Whether the stream is the terminal itself rather than a pipe or a file of a pipeline
+    public boolean isConsole(OutputStream stream) {
+        return attachedToTerminal && (stream == out || stream == err);
+    }
+
+    public Path getWorkingDirectory() {
+        String directory = context.getVar(Context.WORKING_DIRECTORY_VARIABLE);
+        return directory == null || directory.isEmpty() ? Path.of("").toAbsolutePath() : Path.of(directory);
+    }
+
+    // Relative paths of commands and redirects start from the working directory
+    public Path resolvePath(String path) {
+        return getWorkingDirectory().resolve(path);
+    }
+}
@@ -0,0 +1,65 @@
+package io.cli;
+
+import io.cli.context.Context;
+import io.cli.metrics.Metrics;
+import io.cli.session.Session;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class ShellTest {
+    @Test
+    void testBatchExpandsPositionalParameters() {
+        Context context = new Context();
+        Shell shell = Main.newShell(context, new Metrics(), false);
+        shell.setPositionalParameters("script", List.of("one", "two"));
+
+        int exitCode = shell.runBatch(new StringReader("#!/usr/bin/env cli\nfirst=$1\n  # comment\ncount=$#\nall=\"$@\"\nexit 3\nafter=1\n"));
+
+        Assertions.assertEquals(3, exitCode);
+        Assertions.assertEquals("one", context.getVar("first"));
+        Assertions.assertEquals("2", context.getVar("count"));
+        Assertions.assertEquals("one two", context.getVar("all"));
+        Assertions.assertNull(context.getVar("after"));
+    }
+
+    @Test
+    void testBatchExitsWithLastStatus() {
+        Context context = new Context();
+        Shell shell = Main.newShell(context, new Metrics(), false);
+
+        Assertions.assertEquals(2, shell.runBatch(new StringReader("x=1\nkill\n")));
+        Assertions.assertEquals(0, shell.runBatch(new StringReader("kill\nx=1")));
+        // A line that cannot be parsed fails like a command, the next lines still run
+        Assertions.assertEquals(0, shell.runBatch(new StringReader("&\ny=2\n")));
+        Assertions.assertEquals(1, shell.runBatch(new StringReader("y=3\necho \"unclosed\ny=4\n")));
+        Assertions.assertEquals("3", context.getVar("y"));
+    }
+
+    @Test
+    void testStdinScriptLeavesRestToCommands() {
+        ByteArrayInputStream in = new ByteArrayInputStream("/bin/cat\nhello\n".getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Session session = new Session(new Context(), in, new PrintStream(out, true), System.err);
+        Shell shell = Main.newShell(session, new Metrics(), false);
+
+        Assertions.assertEquals(0, shell.runArguments(List.of()));
+        Assertions.assertEquals("hello\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testBatchDoesNotReportJobs() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Session session = new Session(new Context(), System.in, new PrintStream(out, true), System.err);
+        Shell shell = Main.newShell(session, new Metrics(), false);
+
+        Assertions.assertEquals(0, shell.runBatch(new StringReader("x=1 &\nwait\n")));
+        Assertions.assertEquals("", out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,156 @@
+package io.cli.command;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+class BuiltinOutputTest {
+    @Test
+    void testBlockBufferedWritesOnceOnFlush() {
+        CountingStream stream = new CountingStream();
+        BuiltinOutput output = new BuiltinOutput(stream, false);
+
+        for (int i = 0; i < 100; i++) {
+            output.println("line " + i);
+        }
+        Assertions.assertEquals(0, stream.writes);
+        output.flush();
+
+        Assertions.assertEquals(1, stream.writes);
+        Assertions.assertEquals(1, stream.flushes);
+        Assertions.assertTrue(stream.toString(StandardCharsets.UTF_8).endsWith("line 99\n"));
+    }
+
+    @Test
+    void testLineBufferedWritesEveryLine() {
+        CountingStream stream = new CountingStream();
+        BuiltinOutput output = new BuiltinOutput(stream, true);
+
+        output.print("a");
+        Assertions.assertEquals(0, stream.writes);
+        output.println("b");
+        output.printf("%d%n", 3);
+
+        Assertions.assertEquals(2, stream.writes);
+        Assertions.assertEquals("ab\n3\n", stream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testNonAsciiIsEncodedAsUtf8() {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        BuiltinOutput output = new BuiltinOutput(stream, false);
+
+        output.print("ascii, ");
+        output.print("привет 😀");
+        output.print('é');
+        output.flush();
+
+        Assertions.assertEquals("ascii, привет 😀é", stream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testLargeOutputSpansBlocks() {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        BuiltinOutput output = new BuiltinOutput(stream, false);
+
+        String text = "x".repeat(100_000);
+        output.print(text);
+
+        Assertions.assertFalse(output.checkError());
+        Assertions.assertEquals(text, stream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testFailedWriteIsReported() {
+        BuiltinOutput output = new BuiltinOutput(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        }, false);
+
+        output.println("lost");
+
+        Assertions.assertTrue(output.checkError());
+    }
+
+    @Test
+    void testBlocksAreHandedToSink() {
+        CountingStream stream = new CountingStream();
+        ListSink sink = new ListSink(8);
+        BuiltinOutput output = new BuiltinOutput(stream, sink, false);
+
+        output.print("0123456789");
+        output.println("ab");
+        output.flush();
+
+        // The blocks the sink allocated go back to it as they are, the stream is never used
+        Assertions.assertEquals(List.of("01234567", "89ab\n"), sink.texts());
+        Assertions.assertEquals(2, sink.allocated.size());
+        for (int i = 0; i < sink.put.size(); i++) {
+            Assertions.assertSame(sink.allocated.get(i), sink.put.get(i));
+        }
+        Assertions.assertEquals(1, sink.flushes);
+        Assertions.assertEquals(0, stream.writes);
+    }
+
+    private static class ListSink implements BufferSink {
+        private final int size;
+        private final List<ByteBuffer> allocated = new ArrayList<>();
+        private final List<ByteBuffer> put = new ArrayList<>();
+        private int flushes;
+
+        ListSink(int size) {
+            this.size = size;
+        }
+
+        List<String> texts() {
+            return put.stream().map(buffer -> StandardCharsets.UTF_8.decode(buffer.duplicate()).toString()).toList();
+        }
+
+        @Override
+        public ByteBuffer allocate() {
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            allocated.add(buffer);
+            return buffer;
+        }
+
+        @Override
+        public void put(ByteBuffer buffer) {
+            put.add(buffer);
+        }
+
+        @Override
+        public void release(ByteBuffer buffer) {
+            Assertions.fail("Nothing was left to release");
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+
+    private static class CountingStream extends ByteArrayOutputStream {
+        private int writes;
+        private int flushes;
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) {
+            writes++;
+            super.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package io.cli.command;
+
+import io.cli.command.impl.assign.AssignCommand;
+import io.cli.command.impl.assign.AssignCommandFactory;
+import io.cli.command.impl.echo.EchoCommand;
+import io.cli.command.impl.echo.EchoCommandFactory;
+import io.cli.command.impl.exit.ExitCommand;
+import io.cli.command.impl.exit.ExitCommandFactory;
+import io.cli.command.impl.external.ExternalCommand;
+import io.cli.command.impl.external.ExternalCommandFactory;
+import io.cli.command.impl.external.StreamPump;
+import io.cli.context.Context;
+import io.cli.parser.token.Token;
+import io.cli.parser.token.TokenType;
+import io.cli.session.Session;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class CommandRegistryTest {
+    private final Context context = new Context();
+    private final Session session = new Session(context);
+    private final CommandRegistry registry = new CommandRegistry(
+            new AssignCommandFactory(context),
+            new ExternalCommandFactory(context, new StreamPump())
+    );
+
+    @Test
+    void testDispatchRules() {
+        registry.register("echo", new EchoCommandFactory(session));
+        registry.register("exit", new ExitCommandFactory(session));
+
+        Assertions.assertInstanceOf(EchoCommand.class, registry.newCommand(args("echo", "hi")));
+        Assertions.assertInstanceOf(AssignCommand.class, registry.newCommand(args("echo=1")));
+        Assertions.assertInstanceOf(ExternalCommand.class, registry.newCommand(args("1x=1")));
+        Assertions.assertInstanceOf(ExternalCommand.class, registry.newCommand(args("ls", "-l")));
+        Assertions.assertInstanceOf(ExitCommand.class, registry.newCommand(args("exit", "1")));
+        // A builtin that declines its arguments leaves them to an external command
+        Assertions.assertInstanceOf(ExternalCommand.class, registry.newCommand(args("exit", "1", "2")));
+    }
+
+    @Test
+    void testRegisterAndUnregisterAtRuntime() {
+        AtomicInteger changes = new AtomicInteger();
+        registry.addChangeListener(changes::incrementAndGet);
+
+        registry.register("echo", new EchoCommandFactory(session));
+        Assertions.assertInstanceOf(EchoCommand.class, registry.newCommand(args("echo")));
+
+        registry.unregister("echo");
+        registry.unregister("echo");
+        Assertions.assertFalse(registry.isBuiltin("echo"));
+        Assertions.assertInstanceOf(ExternalCommand.class, registry.newCommand(args("echo")));
+        Assertions.assertEquals(2, changes.get());
+    }
+
+    @Test
+    void testOnlyTheNamedBuiltinIsAsked() {
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 500; i++) {
+            registry.register("builtin" + i, args -> {
+                calls.incrementAndGet();
+                return Optional.of(new EchoCommand(session, args));
+            });
+        }
+
+        Assertions.assertInstanceOf(EchoCommand.class, registry.newCommand(args("builtin250")));
+        Assertions.assertEquals(1, calls.get());
+    }
+
+    private static List<Token> args(String... args) {
+        return Arrays.stream(args).map(arg -> new Token(TokenType.COMMAND, arg)).toList();
+    }
+}
@@ -5,9 +5,7 @@ import io.cli.command.impl.external.ExternalCommand;
 import io.cli.command.impl.external.ExternalCommandFactory;
 import io.cli.context.Context;
 import io.cli.parser.ParserOrchestrator;
-import io.cli.parser.innerparser.PipeParser;
-import io.cli.parser.innerparser.QuoteParser;
-import io.cli.parser.innerparser.Substitutor;
+import io.cli.parser.innerparser.Lexer;
 import io.cli.parser.token.Token;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -22,12 +20,7 @@ class AssignCommandTest {
     @BeforeEach
     void setUp() {
         context = new Context();
-        parserOrchestrator = new ParserOrchestrator(
-                new PipeParser(),
-                new QuoteParser(),
-                new Substitutor(),
-                context
-        );
+        parserOrchestrator = new ParserOrchestrator(new Lexer(), context);
     }
 
     @Test
@@ -0,0 +1,41 @@
+package io.cli.command.impl.cat;
+
+import io.cli.context.Context;
+import io.cli.executor.pipe.BytePipe;
+import io.cli.parser.token.Token;
+import io.cli.parser.token.TokenType;
+import io.cli.session.Session;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+class CatCommandTest {
+    @Test
+    @Timeout(10)
+    void testLineIsPassedOnWhileInputStaysOpen() throws IOException, InterruptedException {
+        BytePipe input = new BytePipe();
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        // Nothing reaches written unless cat flushes
+        PrintStream output = new PrintStream(new BufferedOutputStream(written), false);
+        Session session = new Session(new Context(), input.inputStream(), output, System.err);
+        CatCommand cat = new CatCommand(session, List.of(new Token(TokenType.COMMAND, "cat")));
+
+        Thread thread = Thread.ofPlatform().start(cat::execute);
+        input.outputStream().write("hello\n".getBytes(StandardCharsets.UTF_8));
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (written.size() < 6 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        Assertions.assertEquals("hello\n", written.toString(StandardCharsets.UTF_8));
+        input.closeWriter();
+        thread.join();
+    }
+}
@@ -1,7 +1,108 @@
 package io.cli.command.impl.external;
 
+import io.cli.context.Context;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ExternalCommandTest {
+    @Test
+    @Timeout(10)
+    void testRedirectsBypassStreams(@TempDir Path directory) throws IOException {
+        Path input = Files.writeString(directory.resolve("in"), "data\n");
+        Path output = directory.resolve("out");
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+        ExternalCommand command = new ExternalCommand(new Context(), new StreamPump(), List.of("sh", "-c", "cat; echo oops >&2"));
+        command.setInputStream(InputStream.nullInputStream());
+        command.setOutputStream(stream);
+        command.redirectInput(ProcessBuilder.Redirect.from(input.toFile()));
+        command.redirectOutput(ProcessBuilder.Redirect.appendTo(output.toFile()));
+        command.redirectErrorStream(true);
+
+        assertEquals(0, command.execute());
+        assertEquals("data\noops\n", Files.readString(output));
+        assertEquals(0, stream.size());
+    }
+
+    @Test
+    @Timeout(10)
+    void testOnlyExportedVariablesReachChild() {
+        Context context = new Context();
+        context.setVar("SHOWN", "yes");
+        context.setVar("HIDDEN", "no", false);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+        ExternalCommand command = new ExternalCommand(context, new StreamPump(), List.of("env"));
+        command.setOutputStream(stream);
+
+        assertEquals(0, command.execute());
+        List<String> lines = stream.toString().lines().toList();
+        assertTrue(lines.contains("SHOWN=yes"));
+        assertTrue(lines.stream().noneMatch(line -> line.startsWith("HIDDEN=") || line.startsWith("?=")));
+    }
+
+    // Spawns 11 000 processes, run with -DexcludedGroups= to include it
+    @Test
+    @Tag("slow")
+    @Timeout(300)
+    void testPumpsDoNotLeak() throws InterruptedException {
+        Context context = new Context();
+        StreamPump streamPump = new StreamPump();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int workers = 8;
+
+        // The JDK keeps process reaper and carrier threads for the peak concurrency, let them settle first
+        assertEquals(0, spawnConcurrently(context, streamPump, workers, 1_000));
+        int platformThreadsBefore = threads.getThreadCount();
+
+        assertEquals(0, spawnConcurrently(context, streamPump, workers, 10_000));
+
+        assertEquals(0, streamPump.getActivePumps());
+        // Carrier and reaper pools may still adjust to the concurrency, but never to the number of commands
+        assertTrue(threads.getThreadCount() <= platformThreadsBefore + workers,
+                "platform threads grew from %d to %d".formatted(platformThreadsBefore, threads.getThreadCount()));
+    }
+
+    private static int spawnConcurrently(Context context, StreamPump streamPump, int workers, int commands)
+            throws InterruptedException {
+        AtomicInteger failures = new AtomicInteger();
+        List<Thread> spawners = new ArrayList<>();
+        for (int worker = 0; worker < workers; worker++) {
+            spawners.add(Thread.ofVirtual().start(() -> {
+                for (int i = 0; i < commands / workers; i++) {
+                    if (runCommand(context, streamPump) != 0) {
+                        failures.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread spawner : spawners) {
+            spawner.join();
+        }
+        return failures.get();
+    }
 
-}
\ No newline at end of file
+    private static int runCommand(Context context, StreamPump streamPump) {
+        ExternalCommand command = new ExternalCommand(context, streamPump, List.of("true"));
+        command.setInputStream(new ByteArrayInputStream(new byte[16]));
+        command.setOutputStream(OutputStream.nullOutputStream());
+        return command.execute();
+    }
+}
@@ -0,0 +1,48 @@
+package io.cli.command.impl.external;
+
+import io.cli.context.Context;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+class ExternalPipelineCommandTest {
+    @Test
+    @Timeout(10)
+    void testProcessesAreConnectedDirectly() {
+        Context context = new Context();
+        StreamPump streamPump = new StreamPump();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        ExternalPipelineCommand command = new ExternalPipelineCommand(List.of(
+                new ExternalCommand(context, streamPump, List.of("cat")),
+                new ExternalCommand(context, streamPump, List.of("sort", "-r")),
+                new ExternalCommand(context, streamPump, List.of("head", "-n", "2"))
+        ));
+        command.setInputStream(new ByteArrayInputStream("a\nc\nb\n".getBytes(StandardCharsets.UTF_8)));
+        command.setOutputStream(output);
+
+        Assertions.assertEquals(0, command.execute());
+        Assertions.assertEquals("c\nb\n", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @Timeout(10)
+    void testExitCodeIsTakenFromLastProcess() {
+        Context context = new Context();
+        StreamPump streamPump = new StreamPump();
+
+        ExternalPipelineCommand command = new ExternalPipelineCommand(List.of(
+                new ExternalCommand(context, streamPump, List.of("true")),
+                new ExternalCommand(context, streamPump, List.of("sh", "-c", "exit 7"))
+        ));
+        command.setInputStream(new ByteArrayInputStream(new byte[0]));
+        command.setOutputStream(new ByteArrayOutputStream());
+
+        Assertions.assertEquals(7, command.execute());
+    }
+}
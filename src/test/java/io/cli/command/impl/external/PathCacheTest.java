@@ -0,0 +1,83 @@
+package io.cli.command.impl.external;
+
+import io.cli.context.Context;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+class PathCacheTest {
+    @Test
+    void testResolveCountsHitsAndMisses(@TempDir Path directory) throws IOException {
+        Path tool = executable(directory.resolve("bin"), "tool");
+        Context context = new Context();
+        context.setVar("PATH", "/nonexistent:" + tool.getParent());
+        PathCache pathCache = new PathCache(context);
+
+        Assertions.assertEquals(Optional.of(tool.toString()), pathCache.resolve("tool"));
+        Assertions.assertEquals(Optional.of(tool.toString()), pathCache.resolve("tool"));
+        Assertions.assertEquals(Optional.empty(), pathCache.resolve("missing"));
+        Assertions.assertEquals(Optional.empty(), pathCache.resolve("./tool"));
+
+        Assertions.assertEquals(1, pathCache.getHits());
+        Assertions.assertEquals(2, pathCache.getMisses());
+        Assertions.assertEquals(Map.of(tool.toString(), 1L), pathCache.getEntries());
+    }
+
+    @Test
+    void testPathChangeAndDirectoryChangeInvalidate(@TempDir Path directory) throws IOException {
+        Path first = executable(directory.resolve("first"), "tool");
+        Path second = executable(directory.resolve("second"), "tool");
+        Context context = new Context();
+        context.setVar("PATH", first.getParent().toString());
+        PathCache pathCache = new PathCache(context);
+
+        Assertions.assertEquals(Optional.of(first.toString()), pathCache.resolve("tool"));
+        context.setVar("PATH", second.getParent().toString());
+        Assertions.assertEquals(Optional.of(second.toString()), pathCache.resolve("tool"));
+
+        Files.setLastModifiedTime(second.getParent(), FileTime.fromMillis(0));
+        pathCache.resolve("tool");
+        Assertions.assertEquals(0, pathCache.getHits());
+        Assertions.assertEquals(3, pathCache.getMisses());
+
+        pathCache.clear();
+        Assertions.assertTrue(pathCache.getEntries().isEmpty());
+    }
+
+    @Test
+    void testExternalCommandRunsResolvedExecutable(@TempDir Path directory) throws IOException {
+        Path tool = directory.resolve("bin").resolve("greet");
+        Files.createDirectories(tool.getParent());
+        Files.writeString(tool, "#!/bin/sh\necho hello\n");
+        Files.setPosixFilePermissions(tool, PosixFilePermissions.fromString("rwxr-xr-x"));
+        Context context = new Context();
+        context.setVar("PATH", tool.getParent() + ":" + System.getenv("PATH"));
+        PathCache pathCache = new PathCache(context);
+
+        for (int i = 0; i < 2; i++) {
+            ExternalCommand command = new ExternalCommand(context, new StreamPump(), pathCache, List.of("greet"));
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            command.setOutputStream(output);
+            Assertions.assertEquals(0, command.execute());
+            Assertions.assertEquals("hello\n", output.toString());
+        }
+        Assertions.assertEquals(1, pathCache.getHits());
+    }
+
+    private static Path executable(Path directory, String name) throws IOException {
+        Files.createDirectories(directory);
+        Path file = Files.createFile(directory.resolve(name));
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rwxr-xr-x"));
+        return file;
+    }
+}
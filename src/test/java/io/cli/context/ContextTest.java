@@ -0,0 +1,121 @@
+package io.cli.context;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class ContextTest {
+    @Test
+    void testStatusIsNotExported() {
+        Context context = new Context();
+
+        Assertions.assertEquals("0", context.getVar("?"));
+        Assertions.assertFalse(context.isExported("?"));
+        Assertions.assertEquals(Map.of(), context.getEnvironment());
+    }
+
+    @Test
+    void testEnvironmentIsRebuiltOnlyForExportedChanges() {
+        Context context = new Context();
+        context.setVar("x", "1");
+        Map<String, String> environment = context.getEnvironment();
+        Assertions.assertEquals(Map.of("x", "1"), environment);
+
+        long version = context.getVersion();
+        context.setVar("?", "3", false);
+        context.setVar("x", "1");
+        Assertions.assertSame(environment, context.getEnvironment());
+        Assertions.assertEquals(version + 2, context.getVersion());
+
+        context.setVar("x", "2");
+        Assertions.assertEquals(Map.of("x", "2"), context.getEnvironment());
+
+        context.setVar("x", "2", false);
+        Assertions.assertEquals(Map.of(), context.getEnvironment());
+        context.setVar("x", "3");
+        Assertions.assertFalse(context.isExported("x"));
+    }
+
+    @Test
+    void testForksAreIsolatedUntilPublished() {
+        Context context = new Context();
+        context.setVar("x", "1");
+        context.setVar("y", "1");
+
+        Context fork = context.fork();
+        fork.setVar("x", "2");
+        fork.setVar("local", "3", false);
+        context.setVar("y", "2");
+
+        Assertions.assertEquals("1", context.getVar("x"));
+        Assertions.assertEquals("2", fork.getVar("x"));
+        Assertions.assertEquals("1", fork.getVar("y"));
+        Assertions.assertNull(context.getVar("local"));
+        Assertions.assertEquals(Map.of("x", "2", "y", "1"), fork.getEnvironment());
+
+        fork.publish();
+        Assertions.assertEquals("2", context.getVar("x"));
+        Assertions.assertEquals("2", context.getVar("y"));
+        Assertions.assertEquals("3", context.getVar("local"));
+        Assertions.assertFalse(context.isExported("local"));
+        Assertions.assertEquals(Map.of("x", "2", "y", "2"), context.getEnvironment());
+    }
+
+    @Test
+    void testDeepForkChainsStayCorrect() {
+        Context context = new Context();
+        for (int i = 0; i < 100; i++) {
+            context.setVar("v" + i, Integer.toString(i));
+            context = context.fork();
+        }
+
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(Integer.toString(i), context.getVar("v" + i));
+        }
+        Assertions.assertEquals(100, context.getEnvironment().size());
+    }
+
+    @Test
+    void testConcurrentReadersAndWriters() throws InterruptedException {
+        Context context = new Context();
+        int writers = 4;
+        int writes = 10_000;
+        List<Thread> threads = new ArrayList<>();
+        AtomicBoolean failed = new AtomicBoolean();
+
+        for (int w = 0; w < writers; w++) {
+            String key = "k" + w;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < writes; i++) {
+                    context.setVar(key, Integer.toString(i));
+                    if (i % 1000 == 0) {
+                        context.fork().setVar(key, "forked");
+                    }
+                }
+            }));
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < writes; i++) {
+                    String value = context.getVar(key);
+                    if ("forked".equals(value)) {
+                        failed.set(true);
+                    }
+                    context.getEnvironment();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assertions.assertFalse(failed.get());
+        for (int w = 0; w < writers; w++) {
+            Assertions.assertEquals(Integer.toString(writes - 1), context.getVar("k" + w));
+        }
+        Assertions.assertEquals(writers, context.getEnvironment().size());
+        Assertions.assertEquals(writers * writes + 1, context.getVersion());
+    }
+}
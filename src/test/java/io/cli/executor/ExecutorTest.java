@@ -0,0 +1,536 @@
+package io.cli.executor;
+
+import io.cli.command.BufferCommand;
+import io.cli.command.BufferSink;
+import io.cli.command.BufferSource;
+import io.cli.command.Command;
+import io.cli.command.impl.assign.AssignCommand;
+import io.cli.command.impl.cat.CatCommand;
+import io.cli.command.impl.echo.EchoCommand;
+import io.cli.command.impl.external.ExternalCommand;
+import io.cli.command.impl.external.StreamPump;
+import io.cli.context.Context;
+import io.cli.exception.ExitException;
+import io.cli.executor.pipe.BytePipe;
+import io.cli.parser.token.Token;
+import io.cli.parser.token.TokenType;
+import io.cli.session.Session;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+class ExecutorTest {
+    @Test
+    @Timeout(10)
+    void testStagesRunConcurrently() throws IOException {
+        Context context = new Context();
+        AtomicLong received = new AtomicLong();
+        long size = 16L * 1024 * 1024;
+
+        new Executor(context).pipeAndExecuteCommands(List.of(
+                new ProducerCommand(size),
+                new CountingCommand(received, 0)
+        ));
+
+        Assertions.assertEquals(size, received.get());
+        Assertions.assertEquals("0", context.getVar("?"));
+    }
+
+    @Test
+    @Timeout(10)
+    void testPipelineStagesAssignInSubshells() {
+        Session session = new Session(new Context());
+        Executor executor = new Executor(session, BytePipe.DEFAULT_CAPACITY, false, null);
+
+        // x=1 | y=2 changes nothing, like in sh
+        executor.pipeAndExecuteCommands(List.of(
+                new AssignCommand(session, "x", "1"),
+                new AssignCommand(session, "y", "2")
+        ));
+        Assertions.assertNull(session.getContext().getVar("x"));
+        Assertions.assertNull(session.getContext().getVar("y"));
+
+        executor.pipeAndExecuteCommands(List.of(new AssignCommand(session, "x", "3")));
+        Assertions.assertEquals("3", session.getContext().getVar("x"));
+    }
+
+    @Test
+    @Timeout(10)
+    void testExitCodeIsTakenFromLastStage() throws IOException {
+        Context context = new Context();
+        AtomicLong received = new AtomicLong();
+
+        new Executor(context).pipeAndExecuteCommands(List.of(
+                new ProducerCommand(1024),
+                new CountingCommand(received, 3)
+        ));
+
+        Assertions.assertEquals("3", context.getVar("?"));
+    }
+
+    @Test
+    @Timeout(10)
+    void testProducerStopsWhenReaderFinishes() throws IOException {
+        Context context = new Context();
+
+        new Executor(context).pipeAndExecuteCommands(List.of(
+                new ProducerCommand(Long.MAX_VALUE),
+                new CountingCommand(new AtomicLong(), 0) {
+                    @Override
+                    public int execute() {
+                        return 0;
+                    }
+                }
+        ));
+
+        Assertions.assertEquals("0", context.getVar("?"));
+    }
+
+    @Test
+    @Timeout(10)
+    void testProducerIsReportedAsBrokenPipe() {
+        Context context = new Context();
+
+        new Executor(context).pipeAndExecuteCommands(List.of(
+                new ProducerCommand(Long.MAX_VALUE),
+                new HeadCommand()
+        ));
+
+        Assertions.assertEquals("0", context.getVar("?"));
+        Assertions.assertEquals(Executor.BROKEN_PIPE_STATUS + " 0", context.getVar(Executor.PIPE_STATUS_VARIABLE));
+    }
+
+    @Test
+    @Timeout(10)
+    void testProcessIsStoppedWhenReaderFinishes() {
+        Context context = new Context();
+
+        // The shell sleeps between lines, only the failed write can tell it to stop
+        new Executor(context).pipeAndExecuteCommands(List.of(
+                new ExternalCommand(context, new StreamPump(), List.of("sh", "-c", "while true; do echo a; sleep 1; done")),
+                new HeadCommand()
+        ));
+
+        Assertions.assertEquals(Executor.BROKEN_PIPE_STATUS + " 0", context.getVar(Executor.PIPE_STATUS_VARIABLE));
+    }
+
+    @Test
+    @Timeout(10)
+    void testFusedProcessesReportEveryStatus() {
+        Context context = new Context();
+        StreamPump streamPump = new StreamPump();
+
+        new Executor(context).pipeAndExecuteCommands(List.of(
+                new ExternalCommand(context, streamPump, List.of("sh", "-c", "exit 3")),
+                new ExternalCommand(context, streamPump, List.of("true")),
+                new CountingCommand(new AtomicLong(), 0)
+        ));
+
+        Assertions.assertEquals("3 0 0", context.getVar(Executor.PIPE_STATUS_VARIABLE));
+    }
+
+    @Test
+    @Timeout(10)
+    void testBufferCommandsShareBuffers(@TempDir Path directory) throws IOException {
+        Context context = new Context();
+        Session session = new Session(context);
+        Path input = directory.resolve("in");
+        Path output = directory.resolve("out");
+        Files.write(input, new byte[100_000]);
+        List<ByteBuffer> sent = new ArrayList<>();
+        List<ByteBuffer> received = new ArrayList<>();
+
+        new Executor(context).pipeAndExecuteStages(List.of(
+                new Stage(new CatCommand(session, List.of(new Token(TokenType.COMMAND, "cat"), new Token(TokenType.COMMAND, input.toString())))),
+                new Stage(new BufferRelayCommand(null, sent)),
+                new Stage(new BufferRelayCommand(received, null)),
+                new Stage(new CatCommand(session, List.of(new Token(TokenType.COMMAND, "cat"))), List.of(
+                        new Redirect(RedirectType.OUTPUT, output.toString())
+                ))
+        ));
+
+        Assertions.assertEquals("0 0 0 0", context.getVar(Executor.PIPE_STATUS_VARIABLE));
+        Assertions.assertEquals(100_000, Files.size(output));
+        Assertions.assertEquals(sent.size(), received.size());
+        for (int i = 0; i < sent.size(); i++) {
+            Assertions.assertSame(sent.get(i), received.get(i));
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void testBuiltinOutputIsPassedAsBuffers(@TempDir Path directory) throws IOException {
+        Context context = new Context();
+        Session session = new Session(context);
+        Path output = directory.resolve("out");
+        List<ByteBuffer> received = new ArrayList<>();
+
+        new Executor(context).pipeAndExecuteStages(List.of(
+                new Stage(new EchoCommand(session, List.of(new Token(TokenType.COMMAND, "echo"), new Token(TokenType.COMMAND, "hi")))),
+                new Stage(new BufferRelayCommand(received, null)),
+                new Stage(new CatCommand(session, List.of(new Token(TokenType.COMMAND, "cat"))), List.of(
+                        new Redirect(RedirectType.OUTPUT, output.toString())
+                ))
+        ));
+
+        Assertions.assertEquals("0 0 0", context.getVar(Executor.PIPE_STATUS_VARIABLE));
+        Assertions.assertEquals("hi \n", Files.readString(output));
+        // echo filled one block and handed it over
+        Assertions.assertEquals(1, received.size());
+    }
+
+    @Test
+    @Timeout(10)
+    void testProfileCountsBytesBetweenStages(@TempDir Path directory) throws IOException {
+        Path input = directory.resolve("in");
+        Files.write(input, new byte[100_000]);
+        PipelineProfile profile = new PipelineProfile();
+        Context context = new Context();
+        Session session = new Session(context);
+
+        new Executor(context).pipeAndExecuteStages(List.of(
+                new Stage(new CatCommand(session, List.of(new Token(TokenType.COMMAND, "cat"), new Token(TokenType.COMMAND, input.toString()))),
+                        List.of(), "cat in"),
+                new Stage(new CatCommand(session, List.of(new Token(TokenType.COMMAND, "cat"))), List.of(
+                        new Redirect(RedirectType.OUTPUT, directory.resolve("out").toString())
+                ), "cat > out")
+        ), profile);
+
+        List<PipelineProfile.StageProfile> stages = profile.getStages();
+        Assertions.assertEquals(List.of("cat in", "cat > out"),
+                stages.stream().map(PipelineProfile.StageProfile::getDescription).toList());
+        Assertions.assertEquals(100_000, stages.get(0).getBytesOut());
+        Assertions.assertEquals(100_000, stages.get(1).getBytesIn());
+        Assertions.assertTrue(stages.get(0).getBlockedNanos() >= 0);
+        Assertions.assertTrue(stages.get(1).getStarvedNanos() >= 0);
+        Assertions.assertTrue(profile.getRealNanos() >= stages.get(1).getRealNanos());
+    }
+
+    @Test
+    @Timeout(10)
+    void testProfileMeasuresCpuOfProcesses() {
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        Session session = new Session(new Context(), InputStream.nullInputStream(),
+                new PrintStream(stdout, true), new PrintStream(OutputStream.nullOutputStream()));
+        PipelineProfile profile = new PipelineProfile();
+
+        new Executor(session, BytePipe.DEFAULT_CAPACITY, false, null).pipeAndExecuteStages(List.of(
+                new Stage(new ExternalCommand(session, new StreamPump(), null, null,
+                        List.of("sh", "-c", "i=0; while [ $i -lt 200000 ]; do i=$((i + 1)); done; echo $i")),
+                        List.of(), "count"),
+                new Stage(new CatCommand(session, List.of(new Token(TokenType.COMMAND, "cat"))), List.of(), "cat")
+        ), profile);
+
+        Assertions.assertEquals("200000\n", stdout.toString(StandardCharsets.UTF_8));
+        List<PipelineProfile.StageProfile> stages = profile.getStages();
+        Assertions.assertTrue(stages.get(0).getCpuNanos() > 0);
+        Assertions.assertTrue(stages.get(0).getCpuNanos() <= stages.get(0).getRealNanos());
+        Assertions.assertEquals(-1, stages.get(1).getCpuNanos());
+    }
+
+    @Test
+    @Timeout(10)
+    void testStageExceptionIsRethrown() {
+        Context context = new Context();
+
+        Assertions.assertThrows(ExitException.class, () -> new Executor(context).pipeAndExecuteCommands(List.of(
+                new ProducerCommand(1024),
+                new CountingCommand(new AtomicLong(), 0) {
+                    @Override
+                    public int execute() {
+                        throw new ExitException(0);
+                    }
+                }
+        )));
+    }
+
+    @Test
+    @Timeout(10)
+    void testBuiltinRedirectsUseFiles(@TempDir Path directory) throws IOException {
+        Context context = new Context();
+        AtomicLong received = new AtomicLong();
+        Path output = directory.resolve("out");
+        Path error = directory.resolve("err");
+
+        Executor executor = new Executor(context);
+        executor.pipeAndExecuteStages(List.of(new Stage(new ProducerCommand(1000), List.of(
+                new Redirect(RedirectType.OUTPUT, output.toString()),
+                new Redirect(RedirectType.ERROR, error.toString())
+        ))));
+        executor.pipeAndExecuteStages(List.of(new Stage(new ProducerCommand(24), List.of(
+                new Redirect(RedirectType.APPEND, output.toString())
+        ))));
+        executor.pipeAndExecuteStages(List.of(new Stage(new CountingCommand(received, 0), List.of(
+                new Redirect(RedirectType.INPUT, output.toString())
+        ))));
+
+        Assertions.assertEquals(1024, Files.size(output));
+        Assertions.assertTrue(Files.exists(error));
+        Assertions.assertEquals(1024, received.get());
+    }
+
+    @Test
+    @Timeout(10)
+    void testBuiltinErrorsGoToSessionOrRedirect(@TempDir Path directory) throws IOException {
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        Session session = new Session(new Context(), directory, InputStream.nullInputStream(),
+                new PrintStream(OutputStream.nullOutputStream()), new PrintStream(stderr, true));
+        List<Token> args = List.of(new Token(TokenType.COMMAND, "cat"), new Token(TokenType.COMMAND, "missing"));
+
+        Executor executor = new Executor(session, BytePipe.DEFAULT_CAPACITY, false, null);
+        executor.pipeAndExecuteStages(List.of(new Stage(new CatCommand(session, args))));
+        executor.pipeAndExecuteStages(List.of(new Stage(new CatCommand(session, args), List.of(
+                new Redirect(RedirectType.ERROR, "err")
+        ))));
+
+        Assertions.assertEquals("cat: missing: No such file or directory\n", stderr.toString(StandardCharsets.UTF_8));
+        Assertions.assertEquals("cat: missing: No such file or directory\n", Files.readString(directory.resolve("err")));
+    }
+
+    @Test
+    @Timeout(10)
+    void testMissingInputFileFailsStage(@TempDir Path directory) {
+        Context context = new Context();
+
+        new Executor(context).pipeAndExecuteStages(List.of(new Stage(new CountingCommand(new AtomicLong(), 0), List.of(
+                new Redirect(RedirectType.INPUT, directory.resolve("missing").toString())
+        ))));
+
+        Assertions.assertEquals("1", context.getVar("?"));
+    }
+
+    @Test
+    @Timeout(10)
+    void testTimeoutCancelsPipeline() {
+        Context context = new Context();
+        context.setVar(Executor.TIMEOUT_VARIABLE, "0.2");
+
+        new Executor(context).pipeAndExecuteCommands(List.of(
+                new BlockingCommand(),
+                new CountingCommand(new AtomicLong(), 0)
+        ));
+
+        Assertions.assertEquals(Integer.toString(Executor.TIMEOUT_STATUS), context.getVar("?"));
+    }
+
+    @Test
+    @Timeout(10)
+    void testTimeoutTerminatesProcessTree() {
+        Context context = new Context();
+        context.setVar(Executor.TIMEOUT_VARIABLE, "0.5");
+
+        // The background sleep keeps the output open, the pipeline only ends once it is gone too
+        long start = System.nanoTime();
+        new Executor(context).pipeAndExecuteCommands(List.of(
+                new ExternalCommand(context, new StreamPump(), List.of("sh", "-c", "sleep 30 & sleep 30"))
+        ));
+
+        Assertions.assertEquals(Integer.toString(Executor.TIMEOUT_STATUS), context.getVar("?"));
+        Assertions.assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(5)) < 0);
+    }
+
+    @Test
+    @Timeout(10)
+    void testFailingStageCancelsPipeline() {
+        Context context = new Context();
+
+        Assertions.assertThrows(IllegalStateException.class, () -> new Executor(context).pipeAndExecuteCommands(List.of(
+                new BlockingCommand(),
+                new CountingCommand(new AtomicLong(), 0) {
+                    @Override
+                    public int execute() {
+                        throw new IllegalStateException("broken");
+                    }
+                }
+        )));
+    }
+
+    @Test
+    @Timeout(10)
+    void testCancelForeground() throws InterruptedException {
+        Context context = new Context();
+        Executor executor = new Executor(context);
+
+        Thread shell = Thread.ofVirtual().start(() -> executor.pipeAndExecuteCommands(List.of(new BlockingCommand())));
+        while (!executor.cancelForeground()) {
+            Thread.sleep(10);
+        }
+        shell.join();
+
+        Assertions.assertEquals(Integer.toString(Executor.INTERRUPTED_STATUS), context.getVar("?"));
+        Assertions.assertFalse(executor.cancelForeground());
+    }
+
+    private static class ProducerCommand implements Command {
+        private final long size;
+        private OutputStream outputStream;
+
+        ProducerCommand(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public int execute() {
+            byte[] chunk = new byte[8192];
+            try {
+                for (long written = 0; written < size; written += chunk.length) {
+                    outputStream.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+                }
+                return 0;
+            } catch (IOException e) {
+                return 1;
+            }
+        }
+
+        @Override
+        public void setInputStream(InputStream newInputStream) {
+        }
+
+        @Override
+        public void setOutputStream(OutputStream newOutputStream) {
+            outputStream = newOutputStream;
+        }
+    }
+
+    private static class CountingCommand implements Command {
+        private final AtomicLong received;
+        private final int exitCode;
+        private InputStream inputStream;
+
+        CountingCommand(AtomicLong received, int exitCode) {
+            this.received = received;
+            this.exitCode = exitCode;
+        }
+
+        @Override
+        public int execute() {
+            byte[] buffer = new byte[8192];
+            try {
+                int bytesRead;
+                while ((bytesRead = inputStream.read(buffer)) != -1) {
+                    received.addAndGet(bytesRead);
+                }
+            } catch (IOException e) {
+                return 1;
+            }
+            return exitCode;
+        }
+
+        @Override
+        public void setInputStream(InputStream newInputStream) {
+            inputStream = newInputStream;
+        }
+
+        @Override
+        public void setOutputStream(OutputStream newOutputStream) {
+        }
+    }
+
+    private static class BlockingCommand implements Command {
+        @Override
+        public int execute() {
+            try {
+                Thread.sleep(Long.MAX_VALUE);
+                return 0;
+            } catch (InterruptedException e) {
+                return 1;
+            }
+        }
+
+        @Override
+        public void setInputStream(InputStream newInputStream) {
+        }
+
+        @Override
+        public void setOutputStream(OutputStream newOutputStream) {
+        }
+    }
+
+    // Reads the first chunk of its input and leaves
+    private static class HeadCommand implements Command {
+        private InputStream inputStream;
+
+        @Override
+        public int execute() {
+            try {
+                return inputStream.read(new byte[1]) == 1 ? 0 : 1;
+            } catch (IOException e) {
+                return 1;
+            }
+        }
+
+        @Override
+        public void setInputStream(InputStream newInputStream) {
+            inputStream = newInputStream;
+        }
+
+        @Override
+        public void setOutputStream(OutputStream newOutputStream) {
+        }
+    }
+
+    // Passes its input buffers on, recording each of them
+    private static class BufferRelayCommand implements BufferCommand {
+        private final List<ByteBuffer> taken;
+        private final List<ByteBuffer> put;
+        private BufferSource source;
+        private BufferSink sink;
+
+        BufferRelayCommand(List<ByteBuffer> taken, List<ByteBuffer> put) {
+            this.taken = taken;
+            this.put = put;
+        }
+
+        @Override
+        public int execute() {
+            try {
+                ByteBuffer buffer;
+                while ((buffer = source.take()) != null) {
+                    if (taken != null) {
+                        taken.add(buffer);
+                    }
+                    if (put != null) {
+                        put.add(buffer);
+                    }
+                    sink.put(buffer);
+                }
+                return 0;
+            } catch (IOException e) {
+                return 1;
+            }
+        }
+
+        @Override
+        public void setBufferSource(BufferSource newSource) {
+            source = newSource;
+        }
+
+        @Override
+        public void setBufferSink(BufferSink newSink) {
+            sink = newSink;
+        }
+
+        @Override
+        public void setInputStream(InputStream newInputStream) {
+        }
+
+        @Override
+        public void setOutputStream(OutputStream newOutputStream) {
+        }
+    }
+}
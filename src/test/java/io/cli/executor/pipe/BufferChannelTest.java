@@ -0,0 +1,80 @@
+package io.cli.executor.pipe;
+
+import io.cli.command.BufferPool;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+class BufferChannelTest {
+    @Test
+    void testBuffersArePassedWithoutCopying() throws IOException {
+        BufferPool pool = new BufferPool();
+        BufferChannel channel = new BufferChannel(pool, 2);
+
+        ByteBuffer buffer = channel.allocate().put("hello".getBytes(StandardCharsets.UTF_8)).flip();
+        channel.put(buffer);
+        channel.closeWriter();
+
+        Assertions.assertSame(buffer, channel.take());
+        Assertions.assertNull(channel.take());
+    }
+
+    @Test
+    void testEmptyBuffersGoBackToPool() throws IOException {
+        BufferPool pool = new BufferPool();
+        BufferChannel channel = new BufferChannel(pool, 2);
+
+        channel.put(channel.allocate().flip());
+        channel.closeWriter();
+
+        Assertions.assertNull(channel.take());
+        Assertions.assertEquals(1, pool.pooled());
+    }
+
+    @Test
+    void testWriteAfterReaderClosedIsBrokenPipe() throws IOException {
+        BufferPool pool = new BufferPool();
+        BufferChannel channel = new BufferChannel(pool, 2);
+        channel.put(ByteBuffer.wrap(new byte[]{1}));
+        channel.closeReader();
+
+        Assertions.assertThrows(BrokenPipeException.class, () -> channel.put(ByteBuffer.wrap(new byte[]{2})));
+        Assertions.assertTrue(channel.isBroken());
+    }
+
+    @Test
+    @Timeout(10)
+    void testStreamViewsAcrossThreads() throws Exception {
+        BufferPool pool = new BufferPool(64, 4, true);
+        BufferChannel channel = new BufferChannel(pool, 2);
+        int size = 100_000;
+
+        Thread writer = Thread.ofVirtual().start(() -> {
+            try (OutputStream output = channel.outputStream()) {
+                for (int i = 0; i < size; i++) {
+                    output.write(i);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        int count = 0;
+        try (InputStream input = channel.inputStream()) {
+            int b;
+            while ((b = input.read()) != -1) {
+                Assertions.assertEquals(count & 0xFF, b);
+                count++;
+            }
+        }
+        writer.join();
+
+        Assertions.assertEquals(size, count);
+    }
+}
@@ -0,0 +1,156 @@
+package io.cli.executor.pipe;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+class BytePipeTest {
+    @Test
+    void testCapacityIsRoundedToPowerOfTwo() {
+        Assertions.assertEquals(1024, new BytePipe(1000).capacity());
+        Assertions.assertEquals(4096, new BytePipe(4096).capacity());
+    }
+
+    @Test
+    void testWrapsAroundBufferEnd() throws IOException {
+        BytePipe pipe = new BytePipe(8);
+        byte[] chunk = new byte[8];
+
+        pipe.write(new byte[]{1, 2, 3, 4, 5, 6}, 0, 6);
+        Assertions.assertEquals(6, pipe.read(chunk, 0, 8));
+        pipe.write(new byte[]{7, 8, 9, 10, 11}, 0, 5);
+        pipe.closeWriter();
+
+        Assertions.assertEquals(5, pipe.read(chunk, 0, 8));
+        Assertions.assertArrayEquals(new byte[]{7, 8, 9, 10, 11}, java.util.Arrays.copyOf(chunk, 5));
+        Assertions.assertEquals(-1, pipe.read(chunk, 0, 8));
+    }
+
+    @Test
+    void testByteBuffers() throws IOException {
+        BytePipe pipe = new BytePipe(16);
+        pipe.write(ByteBuffer.wrap("hello".getBytes()));
+        pipe.closeWriter();
+
+        ByteBuffer destination = ByteBuffer.allocateDirect(16);
+        Assertions.assertEquals(5, pipe.read(destination));
+        Assertions.assertEquals(-1, pipe.read(destination));
+        destination.flip();
+        byte[] result = new byte[destination.remaining()];
+        destination.get(result);
+        Assertions.assertEquals("hello", new String(result));
+    }
+
+    @Test
+    @Timeout(10)
+    void testTransfersAcrossThreads() throws Exception {
+        BytePipe pipe = new BytePipe(4096);
+        long size = 64L * 1024 * 1024;
+        CRC32 written = new CRC32();
+
+        Thread writer = Thread.ofVirtual().start(() -> {
+            byte[] chunk = new byte[3000];
+            try (var output = pipe.outputStream()) {
+                for (long total = 0; total < size; total += chunk.length) {
+                    int length = (int) Math.min(chunk.length, size - total);
+                    for (int i = 0; i < length; i++) {
+                        chunk[i] = (byte) (total + i);
+                    }
+                    written.update(chunk, 0, length);
+                    output.write(chunk, 0, length);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        CRC32 read = new CRC32();
+        long total = 0;
+        byte[] buffer = new byte[5000];
+        try (InputStream input = pipe.inputStream()) {
+            int bytesRead;
+            while ((bytesRead = input.read(buffer)) != -1) {
+                read.update(buffer, 0, bytesRead);
+                total += bytesRead;
+            }
+        }
+        writer.join();
+
+        Assertions.assertEquals(size, total);
+        Assertions.assertEquals(written.getValue(), read.getValue());
+    }
+
+    @Test
+    @Timeout(10)
+    void testClosedReaderUnblocksWriter() throws Exception {
+        BytePipe pipe = new BytePipe(16);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+
+        Thread writer = Thread.ofVirtual().start(() -> {
+            try {
+                pipe.write(new byte[1024], 0, 1024);
+            } catch (IOException e) {
+                failure.set(e);
+            }
+        });
+        while (pipe.available() < pipe.capacity()) {
+            Thread.onSpinWait();
+        }
+        pipe.closeReader();
+        writer.join();
+
+        Assertions.assertNotNull(failure.get());
+    }
+
+    @Test
+    @Timeout(10)
+    void testInterruptUnblocksReader() throws Exception {
+        BytePipe pipe = new BytePipe(16);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+
+        Thread reader = Thread.ofVirtual().start(() -> {
+            try {
+                pipe.read(new byte[16], 0, 16);
+            } catch (IOException e) {
+                failure.set(e);
+            }
+        });
+        reader.interrupt();
+        reader.join();
+
+        Assertions.assertInstanceOf(InterruptedIOException.class, failure.get());
+    }
+
+    @Test
+    @Timeout(10)
+    void testSmallWriteWakesParkedReader() throws Exception {
+        BytePipe pipe = new BytePipe(4096);
+        AtomicReference<String> received = new AtomicReference<>();
+
+        Thread reader = Thread.ofPlatform().start(() -> {
+            byte[] buffer = new byte[64];
+            try {
+                int bytesRead = pipe.read(buffer, 0, buffer.length);
+                received.set(new String(buffer, 0, bytesRead));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        while (reader.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+        // Neither flushed nor closed, like a line written by a command that keeps running
+        pipe.write("hello\n".getBytes(), 0, 6);
+        reader.join(Duration.ofSeconds(5));
+
+        Assertions.assertEquals("hello\n", received.get());
+    }
+}
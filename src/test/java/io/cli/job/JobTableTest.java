@@ -0,0 +1,169 @@
+package io.cli.job;
+
+import io.cli.command.Command;
+import io.cli.command.impl.assign.AssignCommand;
+import io.cli.command.impl.external.ExternalCommand;
+import io.cli.command.impl.external.StreamPump;
+import io.cli.context.Context;
+import io.cli.executor.Executor;
+import io.cli.executor.Stage;
+import io.cli.session.Session;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+class JobTableTest {
+    @Test
+    @Timeout(20)
+    void testHundredsOfJobsRunConcurrently() throws InterruptedException {
+        Context context = new Context();
+        JobTable jobTable = new JobTable(new Executor(context), OutputStream.nullOutputStream());
+        int platformThreadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        List<Job> jobs = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < 500; i++) {
+            jobs.add(jobTable.start("sleep", List.of(new Stage(new SleepCommand(500, i % 7)))));
+        }
+        int platformThreadsDuring = ManagementFactory.getThreadMXBean().getThreadCount();
+        for (int i = 0; i < jobs.size(); i++) {
+            Assertions.assertEquals(i % 7, jobs.get(i).await());
+        }
+
+        // Sleeping one after another would take minutes
+        Assertions.assertTrue(System.nanoTime() - start < 10_000_000_000L);
+        Assertions.assertTrue(platformThreadsDuring < platformThreadsBefore + 50,
+                "platform threads grew from %d to %d".formatted(platformThreadsBefore, platformThreadsDuring));
+        Assertions.assertEquals(500, jobTable.drainFinished().size());
+        Assertions.assertTrue(jobTable.getJobs().isEmpty());
+        Assertions.assertEquals("0", context.getVar("?"));
+    }
+
+    @Test
+    @Timeout(10)
+    void testOutputLinesArePrefixedWithJob() throws InterruptedException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        JobTable jobTable = new JobTable(new Executor(new Context()), output);
+
+        Job first = jobTable.start("print", List.of(new Stage(new PrintCommand("a\nb\nc"))));
+        Job second = jobTable.start("print", List.of(new Stage(new PrintCommand("x\n"))));
+        first.await();
+        second.await();
+
+        List<String> lines = output.toString(StandardCharsets.UTF_8).lines().sorted().toList();
+        Assertions.assertEquals(List.of("[1] a", "[1] b", "[1] c", "[2] x"), lines);
+    }
+
+    @Test
+    void testLongLineIsWrittenInPieces() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        JobOutputStream jobOutput = new JobOutputStream(3, output, new ReentrantLock(), 4);
+
+        jobOutput.write("abcdefghij".getBytes(StandardCharsets.UTF_8));
+        // Nothing past the limit is held back
+        Assertions.assertEquals("[3] abcd\n[3] efgh\n", output.toString(StandardCharsets.UTF_8));
+        jobOutput.write('k');
+        jobOutput.write("lm\nwxyz\n".getBytes(StandardCharsets.UTF_8));
+        jobOutput.close();
+
+        Assertions.assertEquals("[3] abcd\n[3] efgh\n[3] ijkl\n[3] m\n[3] wxyz\n", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @Timeout(10)
+    void testAssignmentsStayInJob() throws InterruptedException {
+        Session session = new Session(new Context());
+        session.getContext().setVar("x", "shell");
+        JobTable jobTable = new JobTable(new Executor(session.getContext()), OutputStream.nullOutputStream());
+
+        Job job = jobTable.start("x=1", List.of(new Stage(new AssignCommand(session, "x", "1"))));
+
+        Assertions.assertEquals(0, job.await());
+        Assertions.assertEquals("shell", session.getContext().getVar("x"));
+    }
+
+    @Test
+    @Timeout(10)
+    void testKillStopsProcesses() throws InterruptedException {
+        Context context = new Context();
+        JobTable jobTable = new JobTable(new Executor(context), OutputStream.nullOutputStream());
+
+        Job job = jobTable.start("sleep 30", List.of(
+                new Stage(new ExternalCommand(context, new StreamPump(), List.of("sleep", "30")))
+        ));
+        Thread.sleep(200);
+        job.kill();
+
+        Assertions.assertEquals(Job.KILLED_STATUS, job.await());
+        Assertions.assertEquals("Killed", job.describeState());
+        Assertions.assertEquals(job, jobTable.find("%1").orElseThrow());
+    }
+
+    private static class SleepCommand implements Command {
+        private final long millis;
+        private final int exitCode;
+
+        SleepCommand(long millis, int exitCode) {
+            this.millis = millis;
+            this.exitCode = exitCode;
+        }
+
+        @Override
+        public int execute() {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                return 1;
+            }
+            return exitCode;
+        }
+
+        @Override
+        public void setInputStream(InputStream newInputStream) {
+        }
+
+        @Override
+        public void setOutputStream(OutputStream newOutputStream) {
+        }
+    }
+
+    private static class PrintCommand implements Command {
+        private final String text;
+        private OutputStream outputStream;
+
+        PrintCommand(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int execute() {
+            try {
+                for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+                    outputStream.write(b);
+                }
+                return 0;
+            } catch (IOException e) {
+                return 1;
+            }
+        }
+
+        @Override
+        public void setInputStream(InputStream newInputStream) {
+        }
+
+        @Override
+        public void setOutputStream(OutputStream newOutputStream) {
+            outputStream = newOutputStream;
+        }
+    }
+}
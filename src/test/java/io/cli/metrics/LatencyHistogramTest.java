@@ -0,0 +1,57 @@
+package io.cli.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LatencyHistogramTest {
+    @Test
+    void testBucketsCoverEveryValue() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucket(value);
+            Assertions.assertTrue(LatencyHistogram.highestValue(bucket) >= value);
+            Assertions.assertTrue(bucket == 0 || LatencyHistogram.highestValue(bucket - 1) < value);
+        }
+    }
+
+    @Test
+    void testPercentilesAreWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        Assertions.assertEquals(100_000, histogram.getCount());
+        Assertions.assertEquals(100_000_000, histogram.getMaxNanos());
+        assertNear(50_000_000, histogram.percentile(0.5));
+        assertNear(99_000_000, histogram.percentile(0.99));
+        assertNear(99_900_000, histogram.percentile(0.999));
+        Assertions.assertEquals(100_000_000, histogram.percentile(1));
+    }
+
+    @Test
+    void testConcurrentRecordsAreNotLost() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    histogram.record(j);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assertions.assertEquals(80_000, histogram.getCount());
+        Assertions.assertEquals(8L * 9_999 * 10_000 / 2, histogram.getSumNanos());
+        Assertions.assertEquals(9_999, histogram.getMaxNanos());
+    }
+
+    private static void assertNear(long expected, long actual) {
+        Assertions.assertTrue(Math.abs(actual - expected) <= expected / 16, expected + " vs " + actual);
+    }
+}
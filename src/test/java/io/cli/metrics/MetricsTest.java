@@ -0,0 +1,34 @@
+package io.cli.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MetricsTest {
+    @Test
+    void testCommandNamesAreBounded() {
+        Metrics metrics = new Metrics();
+        for (int i = 0; i < Metrics.MAX_COMMANDS + 10; i++) {
+            metrics.record(Metrics.Kind.SPAWN, "command" + i, 1000);
+        }
+
+        Assertions.assertEquals(Metrics.MAX_COMMANDS + 1, metrics.getHistograms(Metrics.Kind.SPAWN).size());
+        Assertions.assertEquals(10, metrics.getHistograms(Metrics.Kind.SPAWN).get(Metrics.OTHER_COMMANDS).getCount());
+    }
+
+    @Test
+    void testPrometheusFormat() {
+        Metrics metrics = new Metrics();
+        metrics.record(Metrics.Kind.PIPELINE, "say \"hi\"", 2_000_000);
+        metrics.addPipedBytes(42);
+        metrics.addFailure();
+
+        String text = PrometheusFormat.format(metrics);
+
+        Assertions.assertTrue(text.contains("# TYPE cli_pipeline_seconds summary\n"));
+        Assertions.assertTrue(text.contains("cli_pipeline_seconds{command=\"say \\\"hi\\\"\",quantile=\"0.99\"} 0.002\n"));
+        Assertions.assertTrue(text.contains("cli_pipeline_seconds_count{command=\"say \\\"hi\\\"\"} 1\n"));
+        Assertions.assertTrue(text.contains("cli_piped_bytes_total 42\n"));
+        Assertions.assertTrue(text.contains("cli_failures_total 1\n"));
+        Assertions.assertTrue(text.contains("cli_spawned_processes_total 0\n"));
+    }
+}
@@ -0,0 +1,219 @@
+package io.cli.parser.innerparser;
+
+import io.cli.context.Context;
+import io.cli.parser.token.Token;
+import io.cli.parser.token.TokenType;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LexerTest {
+    private final Lexer lexer = new Lexer();
+
+    @Test
+    public void testWords() {
+        Context context = new Context();
+        assertEquals(List.of(List.of(
+                new Token(TokenType.COMMAND, "1"),
+                new Token(TokenType.COMMAND, "2"),
+                new Token(TokenType.COMMAND, "3"),
+                new Token(TokenType.COMMAND, "4"),
+                new Token(TokenType.COMMAND, "5")
+        )), lexer.lex("1 2  3 4 5", context));
+    }
+
+    @Test
+    public void testNestedQuotes() {
+        Context context = new Context();
+        assertEquals(List.of(List.of(
+                new Token(TokenType.DOUBLE_QUOTES, "1 '2' 3"),
+                new Token(TokenType.SINGLE_QUOTES, "1 \"2\" 3"),
+                new Token(TokenType.SINGLE_QUOTES, "4 5")
+        )), lexer.lex("\"1 '2' 3\" '1 \"2\" 3' '4 5'", context));
+    }
+
+    @Test
+    public void testQuotes() {
+        Context context = new Context();
+        assertEquals(List.of(List.of(
+                new Token(TokenType.DOUBLE_QUOTES, "1 2"),
+                new Token(TokenType.COMMAND, "3"),
+                new Token(TokenType.DOUBLE_QUOTES, "4 '5'"),
+                new Token(TokenType.SINGLE_QUOTES, "6 \"7\" 8"),
+                new Token(TokenType.SINGLE_QUOTES, "")
+        )), lexer.lex("\"1 2\" 3 \"4 '5'\"'6 \"7\" 8'''", context));
+    }
+
+    @Test
+    public void testSubstitution() {
+        Context context = new Context();
+        context.setVar("x", "12");
+        context.setVar("y", "404");
+
+        assertEquals(List.of(List.of(
+                new Token(TokenType.COMMAND, "x=12;y=404"),
+                new Token(TokenType.DOUBLE_QUOTES, "12 $missing"),
+                new Token(TokenType.SINGLE_QUOTES, "$x"),
+                new Token(TokenType.COMMAND, "\\$x$")
+        )), lexer.lex("x=$x;y=$y \"$x $missing\" '$x' \\$x$", context));
+    }
+
+    @Test
+    public void testMissingAndEscapedVariables() {
+        Context context = new Context();
+        context.setVar("x", "12");
+
+        assertEquals(List.of(List.of(
+                new Token(TokenType.DOUBLE_QUOTES, "$missing 1212 \\$x $ $-"),
+                new Token(TokenType.SINGLE_QUOTES, "$x")
+        )), lexer.lex("\"$missing $x$x \\$x $ $-\" '$x'", context));
+    }
+
+    @Test
+    public void testSameLineWithNewValues() {
+        Context context = new Context();
+        context.setVar("x", "1");
+        assertEquals(List.of(List.of(new Token(TokenType.COMMAND, "a1-b"))), lexer.lex("a$x-b", context));
+
+        context.setVar("x", "long value");
+        assertEquals(List.of(List.of(new Token(TokenType.COMMAND, "along value-b"))), lexer.lex("a$x-b", context));
+    }
+
+    @Test
+    public void testSpecialVariablesAndBackground() {
+        Context context = new Context();
+        context.setVar("!", "4", false);
+
+        assertEquals(List.of(List.of(
+                new Token(TokenType.COMMAND, "0x"),
+                new Token(TokenType.COMMAND, "4!"),
+                new Token(TokenType.BACKGROUND, "&")
+        )), lexer.lex("$?x $!!&", context));
+    }
+
+    @Test
+    public void testPipesAndRedirects() {
+        Context context = new Context();
+        context.setVar("x", "a|b");
+
+        assertEquals(List.of(
+                List.of(
+                        new Token(TokenType.COMMAND, "cat"),
+                        new Token(TokenType.REDIRECT, "<"),
+                        new Token(TokenType.COMMAND, "in")
+                ),
+                List.of(
+                        new Token(TokenType.COMMAND, "echo"),
+                        new Token(TokenType.COMMAND, "a|b"),
+                        new Token(TokenType.DOUBLE_QUOTES, "|"),
+                        new Token(TokenType.REDIRECT, "2>"),
+                        new Token(TokenType.COMMAND, "err"),
+                        new Token(TokenType.REDIRECT, "2>&1")
+                ),
+                List.of(
+                        new Token(TokenType.COMMAND, "tee"),
+                        new Token(TokenType.REDIRECT, ">>"),
+                        new Token(TokenType.COMMAND, "out")
+                )
+        ), lexer.lex("cat <in|echo $x \"|\" 2>err 2>&1 | tee >>out", context));
+    }
+
+    @Test
+    public void testPipesWithoutSpaces() {
+        Context context = new Context();
+        assertEquals(List.of(
+                List.of(new Token(TokenType.COMMAND, "x=12"), new Token(TokenType.COMMAND, "1")),
+                List.of(new Token(TokenType.COMMAND, "2")),
+                List.of(new Token(TokenType.COMMAND, "3"), new Token(TokenType.COMMAND, "4")),
+                List.of(new Token(TokenType.COMMAND, "5"))
+        ), lexer.lex("x=12 1|2 |3 4| 5", context));
+    }
+
+    @Test
+    public void testRedirectsInsideWords() {
+        Context context = new Context();
+        assertEquals(List.of(
+                List.of(
+                        new Token(TokenType.COMMAND, "cmd"),
+                        new Token(TokenType.REDIRECT, "<"),
+                        new Token(TokenType.COMMAND, "in"),
+                        new Token(TokenType.REDIRECT, ">>"),
+                        new Token(TokenType.COMMAND, "out")
+                ),
+                List.of(
+                        new Token(TokenType.COMMAND, "next"),
+                        new Token(TokenType.REDIRECT, "2>"),
+                        new Token(TokenType.DOUBLE_QUOTES, "err file"),
+                        new Token(TokenType.REDIRECT, "2>&1"),
+                        new Token(TokenType.COMMAND, "a2"),
+                        new Token(TokenType.REDIRECT, ">"),
+                        new Token(TokenType.COMMAND, "b")
+                )
+        ), lexer.lex("cmd <in >>out|next 2> \"err file\" 2>&1 a2>b", context));
+    }
+
+    @Test
+    public void testUnterminatedQuotes() {
+        Context context = new Context();
+        assertThrows(IllegalStateException.class, () -> lexer.lex("echo \"abc", context));
+        assertEquals(List.of(List.of(new Token(TokenType.COMMAND, "echo"))), lexer.lex("echo '", context));
+    }
+
+    @Test
+    public void testBufferHoldsOffsetsIntoLine() {
+        Context context = new Context();
+        context.setVar("x", "value");
+        TokenBuffer buffer = lexer.lex("a \"b $x\" |c>d", context, new TokenBuffer());
+
+        assertEquals(5, buffer.size());
+        assertEquals(2, buffer.getStageCount());
+        assertEquals(2, buffer.getStageEnd(0));
+        assertEquals(TokenType.DOUBLE_QUOTES, buffer.getType(1));
+        assertEquals("b value", buffer.getText(1));
+        assertEquals(TokenType.REDIRECT, buffer.getType(3));
+        assertEquals(lexer.lex("a \"b $x\" |c>d", context), buffer.toStages());
+
+        // The next line replaces the previous one
+        lexer.lex("one", context, buffer);
+        assertEquals(List.of(List.of(new Token(TokenType.COMMAND, "one"))), buffer.toStages());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testAllocatesTenTimesLessThanThreePasses() {
+        Context context = new Context();
+        context.setVar("name", "world");
+        String line = "echo \"hello $name\" 'single quoted' plain words here | grep -v x | sort -r > out.txt";
+        QuoteParser quoteParser = new QuoteParser();
+        Substitutor substitutor = new Substitutor();
+        PipeParser pipeParser = new PipeParser();
+        TokenBuffer buffer = new TokenBuffer();
+
+        long threePasses = allocatedBytes(() -> pipeParser.parsePipe(substitutor.substitute(quoteParser.parseQuote(line), context)));
+        long singlePass = allocatedBytes(() -> lexer.lex(line, context, buffer));
+        long tokens = allocatedBytes(() -> lexer.lex(line, context));
+
+        assertTrue(singlePass * 10 < threePasses,
+                "single pass allocated %d bytes, three passes %d".formatted(singlePass, threePasses));
+        // Tokens and lists for the whole line still cost less than the passes did
+        assertTrue(tokens < threePasses, "tokens allocated %d bytes, three passes %d".formatted(tokens, threePasses));
+    }
+
+    private static long allocatedBytes(Runnable parse) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < 10_000; i++) {
+            parse.run();
+        }
+        int iterations = 1_000;
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            parse.run();
+        }
+        return (threads.getCurrentThreadAllocatedBytes() - before) / iterations;
+    }
+}
@@ -28,4 +28,39 @@ public class PipeParserTest {
 
         assertEquals(expect, actual);
     }
+
+    @Test
+    public void testRedirects() {
+        List<Token> tokens = List.of(
+                new Token(TokenType.COMMAND, "cmd"),
+                new Token(TokenType.COMMAND, "<in"),
+                new Token(TokenType.COMMAND, ">>out|next"),
+                new Token(TokenType.COMMAND, "2>"),
+                new Token(TokenType.DOUBLE_QUOTES, "err file"),
+                new Token(TokenType.COMMAND, "2>&1"),
+                new Token(TokenType.COMMAND, "a2>b")
+        );
+        var actual = (new PipeParser()).parsePipe(tokens);
+
+        List<List<Token>> expect = List.of(
+                List.of(
+                        new Token(TokenType.COMMAND, "cmd"),
+                        new Token(TokenType.REDIRECT, "<"),
+                        new Token(TokenType.COMMAND, "in"),
+                        new Token(TokenType.REDIRECT, ">>"),
+                        new Token(TokenType.COMMAND, "out")
+                ),
+                List.of(
+                        new Token(TokenType.COMMAND, "next"),
+                        new Token(TokenType.REDIRECT, "2>"),
+                        new Token(TokenType.DOUBLE_QUOTES, "err file"),
+                        new Token(TokenType.REDIRECT, "2>&1"),
+                        new Token(TokenType.COMMAND, "a2"),
+                        new Token(TokenType.REDIRECT, ">"),
+                        new Token(TokenType.COMMAND, "b")
+                )
+        );
+
+        assertEquals(expect, actual);
+    }
 }
\ No newline at end of file
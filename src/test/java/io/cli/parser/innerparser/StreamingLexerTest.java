@@ -0,0 +1,106 @@
+package io.cli.parser.innerparser;
+
+import io.cli.context.Context;
+import io.cli.parser.token.Token;
+import io.cli.parser.token.TokenType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StreamingLexerTest {
+    @Test
+    public void testShortLinesAreReturnedAsText() throws IOException {
+        StreamingLexer lexer = new StreamingLexer(new StringReader("echo 1\r\n\necho 'a\nb' \"c\n\" d\nlast"));
+        Context context = new Context();
+
+        assertEquals("echo 1", lexer.next(context).getText());
+        assertEquals("", lexer.next(context).getText());
+        assertEquals("echo 'a\nb' \"c\n\" d", lexer.next(context).getText());
+        assertEquals("last", lexer.next(context).getText());
+        assertNull(lexer.next(context));
+    }
+
+    @Test
+    public void testLongLinesMatchLexer() throws IOException {
+        Context context = new Context();
+        context.setVar("x", "a|b");
+        context.setVar("empty", "");
+        List<String> lines = List.of(
+                "\"1 2\" 3 \"4 '5'\"'6 \"7\" 8'''",
+                "x=$x;y=$y \"$x $missing\" '$x' \\$x$ $empty",
+                "cat <in|echo $x \"|\" 2>err 2>&1 | tee >>out",
+                "echo \\| 2 > 22>x 2>&2 $? \\\"quoted",
+                "sleep $?1 $! | cat &",
+                "lone\rcarriage return\r 2>&1"
+        );
+
+        for (String line : lines) {
+            StreamingLexer lexer = new StreamingLexer(new OneCharReader(line + "\n"), 4);
+            LexedLine lexed = lexer.next(context);
+            assertNull(lexed.getText());
+            assertEquals(new Lexer().lex(line, context), lexed.getStages(), line);
+            assertNull(lexer.next(context));
+        }
+    }
+
+    @Test
+    public void testQuotesContinueOnNextLine() throws IOException {
+        StreamingLexer lexer = new StreamingLexer(new OneCharReader("echo \"first\nsecond\" 'x\n'\necho 2"), 4);
+        Context context = new Context();
+
+        assertEquals(List.of(List.of(
+                new Token(TokenType.COMMAND, "echo"),
+                new Token(TokenType.DOUBLE_QUOTES, "first\nsecond"),
+                new Token(TokenType.SINGLE_QUOTES, "x\n")
+        )), lexer.next(context).getStages());
+        assertEquals(List.of(List.of(
+                new Token(TokenType.COMMAND, "echo"),
+                new Token(TokenType.COMMAND, "2")
+        )), lexer.next(context).getStages());
+    }
+
+    @Test
+    public void testUnterminatedQuotesAtEndOfInput() {
+        StreamingLexer lexer = new StreamingLexer(new StringReader("echo \"abc\ndef"), 4);
+        assertThrows(IllegalStateException.class, () -> lexer.next(new Context()));
+    }
+
+    @Test
+    public void testHugeLineIsTokenized() throws IOException {
+        int words = 500_000;
+        StringBuilder line = new StringBuilder("echo");
+        for (int i = 0; i < words; i++) {
+            line.append(" w").append(i % 10);
+        }
+        StreamingLexer lexer = new StreamingLexer(new StringReader(line.append('\n').toString()));
+
+        List<List<Token>> stages = lexer.next(new Context()).getStages();
+        assertEquals(words + 1, stages.getFirst().size());
+        assertEquals(new Token(TokenType.COMMAND, "w9"), stages.getFirst().getLast());
+    }
+
+    private static class OneCharReader extends Reader {
+        private final StringReader reader;
+
+        OneCharReader(String input) {
+            reader = new StringReader(input);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return reader.read(buffer, offset, Math.min(length, 1));
+        }
+
+        @Override
+        public void close() {
+            reader.close();
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 public class SubstitutorTest {
     @Test
@@ -18,4 +19,37 @@ public class SubstitutorTest {
         var res = (new Substitutor()).substitute(List.of(new Token(TokenType.COMMAND, "x=$x;y=$y")), context);
         assertEquals(List.of(new Token(TokenType.COMMAND, "x=12;y=404")), res);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMissingAndEscapedVariables() {
+        Context context = new Context();
+        context.setVar("x", "12");
+        var res = (new Substitutor()).substitute(List.of(
+                new Token(TokenType.DOUBLE_QUOTES, "$missing $x$x \\$x $ $-"),
+                new Token(TokenType.SINGLE_QUOTES, "$x")
+        ), context);
+        assertEquals(List.of(
+                new Token(TokenType.DOUBLE_QUOTES, "$missing 1212 \\$x $ $-"),
+                new Token(TokenType.SINGLE_QUOTES, "$x")
+        ), res);
+    }
+
+    @Test
+    public void testTemplateIsReusedWithNewValues() {
+        Context context = new Context();
+        Substitutor substitutor = new Substitutor();
+        Token token = new Token(TokenType.COMMAND, "a$x-b");
+
+        context.setVar("x", "1");
+        assertEquals(new Token(TokenType.COMMAND, "a1-b"), substitutor.substitute(token, context));
+        context.setVar("x", "long value");
+        assertEquals(new Token(TokenType.COMMAND, "along value-b"), substitutor.substitute(token, context));
+    }
+
+    @Test
+    public void testTokenWithoutVariablesIsNotCopied() {
+        Context context = new Context();
+        Token token = new Token(TokenType.DOUBLE_QUOTES, "no variables here");
+        assertSame(token, (new Substitutor()).substitute(token, context));
+    }
+}
@@ -0,0 +1,50 @@
+package io.cli.parser.innerparser;
+
+import io.cli.context.Context;
+import io.cli.parser.token.Token;
+import io.cli.parser.token.TokenType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenTemplateTest {
+    @Test
+    public void testTokenWithoutVariablesIsReturnedItself() {
+        Context context = new Context();
+        for (Token token : List.of(
+                new Token(TokenType.COMMAND, "plain"),
+                new Token(TokenType.DOUBLE_QUOTES, "no variables here"),
+                new Token(TokenType.SINGLE_QUOTES, "$x stays"),
+                new Token(TokenType.COMMAND, "a$ $-"))) {
+            TokenTemplate template = TokenTemplate.compile(token);
+
+            assertTrue(template.isConstant());
+            assertSame(token, template.substitute(context));
+        }
+    }
+
+    @Test
+    public void testLooksUpEachReferenceOnce() {
+        List<String> lookups = new ArrayList<>();
+        Context context = new Context() {
+            @Override
+            public String getVar(String key) {
+                lookups.add(key);
+                return super.getVar(key);
+            }
+        };
+        context.setVar("x", "1");
+        context.setVar("y", "two");
+        TokenTemplate template = TokenTemplate.compile(new Token(TokenType.DOUBLE_QUOTES, "$x-$y $x $missing"));
+
+        assertFalse(template.isConstant());
+        assertEquals(new Token(TokenType.DOUBLE_QUOTES, "1-two 1 $missing"), template.substitute(context));
+        assertEquals(List.of("x", "y", "x", "missing"), lookups);
+    }
+}
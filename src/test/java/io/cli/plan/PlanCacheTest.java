@@ -0,0 +1,191 @@
+package io.cli.plan;
+
+import io.cli.command.Command;
+import io.cli.command.CommandFactory;
+import io.cli.command.CommandRegistry;
+import io.cli.command.impl.assign.AssignCommandFactory;
+import io.cli.command.impl.echo.EchoCommand;
+import io.cli.command.impl.echo.EchoCommandFactory;
+import io.cli.command.impl.external.ExternalCommand;
+import io.cli.command.impl.external.ExternalCommandFactory;
+import io.cli.command.impl.external.StreamPump;
+import io.cli.context.Context;
+import io.cli.executor.Redirect;
+import io.cli.executor.RedirectType;
+import io.cli.executor.Stage;
+import io.cli.parser.ParserOrchestrator;
+import io.cli.parser.innerparser.Lexer;
+import io.cli.parser.innerparser.TokenTemplate;
+import io.cli.parser.token.Token;
+import io.cli.parser.token.TokenType;
+import io.cli.session.Session;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class PlanCacheTest {
+    @Test
+    void testTemplatesMatchLexer() {
+        Context context = new Context();
+        context.setVar("x", "a|b");
+        context.setVar("y", "");
+        Lexer lexer = new Lexer();
+        ParserOrchestrator parserOrchestrator = new ParserOrchestrator(lexer, context);
+
+        List<String> lines = List.of(
+                "echo $x \"$x-$y $missing\" '$x' \\$x $ $? x=$x$y",
+                "cat <$x | grep \"a b\" 2>$y.err 2>&1 | tee >>out$x",
+                "\"1 2\" 3 \"4 '5'\"'6 \"7\" 8'''"
+        );
+        for (String line : lines) {
+            List<List<Token>> substituted = parserOrchestrator.compile(line).stream()
+                    .map(stage -> stage.stream().map(template -> template.substitute(context)).toList())
+                    .toList();
+            Assertions.assertEquals(lexer.lex(line, context), substituted, line);
+        }
+    }
+
+    @Test
+    void testConstantTemplateReturnsSameToken() {
+        Token token = new Token(TokenType.COMMAND, "plain");
+        TokenTemplate template = TokenTemplate.compile(token);
+
+        Assertions.assertTrue(template.isConstant());
+        Assertions.assertSame(token, template.substitute(new Context()));
+    }
+
+    @Test
+    void testTimeKeywordMarksPlan() {
+        Context context = new Context();
+        PlanCache planCache = new PlanCache(new ParserOrchestrator(new Lexer(), context), context);
+
+        CompiledPlan timed = planCache.get("time echo a | cat");
+        Assertions.assertTrue(timed.isTimed());
+        Assertions.assertEquals(2, timed.instantiate(context, newRegistry(context)).size());
+        Assertions.assertTrue(planCache.get("time").isTimed());
+        Assertions.assertFalse(planCache.get("echo time").isTimed());
+        Assertions.assertFalse(planCache.get("'time' echo").isTimed());
+        Assertions.assertThrows(IllegalStateException.class, () -> planCache.get("time | cat"));
+    }
+
+    @Test
+    void testHitsReevaluateVariables() {
+        Context context = new Context();
+        PlanCache planCache = new PlanCache(new ParserOrchestrator(new Lexer(), context), context);
+        CountingFactory echoFactory = new CountingFactory(new EchoCommandFactory(new Session(context)));
+        CommandRegistry registry = newRegistry(context);
+        registry.register("echo", echoFactory);
+
+        context.setVar("f", "one");
+        Stage first = planCache.get("echo $f > $f.txt").instantiate(context, registry).getFirst();
+        context.setVar("f", "two");
+        Stage second = planCache.get("echo $f > $f.txt").instantiate(context, registry).getFirst();
+
+        Assertions.assertEquals(1, planCache.getMisses());
+        Assertions.assertEquals(1, planCache.getHits());
+        Assertions.assertInstanceOf(EchoCommand.class, first.getCommand());
+        Assertions.assertInstanceOf(EchoCommand.class, second.getCommand());
+        Assertions.assertEquals(List.of(new Redirect(RedirectType.OUTPUT, "one.txt")), first.getRedirects());
+        Assertions.assertEquals(List.of(new Redirect(RedirectType.OUTPUT, "two.txt")), second.getRedirects());
+        Assertions.assertEquals(2, echoFactory.calls.get());
+    }
+
+    @Test
+    void testDynamicCommandNameIsResolvedEveryTime() {
+        Context context = new Context();
+        PlanCache planCache = new PlanCache(new ParserOrchestrator(new Lexer(), context), context);
+        CommandRegistry registry = newRegistry(context);
+        registry.register("echo", new EchoCommandFactory(new Session(context)));
+
+        context.setVar("cmd", "echo");
+        Command first = planCache.get("$cmd hi").instantiate(context, registry).getFirst().getCommand();
+        context.setVar("cmd", "true");
+        Command second = planCache.get("$cmd hi").instantiate(context, registry).getFirst().getCommand();
+
+        Assertions.assertInstanceOf(EchoCommand.class, first);
+        Assertions.assertInstanceOf(ExternalCommand.class, second);
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvicted() {
+        Context context = new Context();
+        PlanCache planCache = new PlanCache(new ParserOrchestrator(new Lexer(), context), context, 2);
+
+        planCache.get("a");
+        planCache.get("b");
+        planCache.get("a");
+        planCache.get("c");
+        planCache.get("a");
+        planCache.get("b");
+
+        Assertions.assertEquals(2, planCache.size());
+        Assertions.assertEquals(2, planCache.getHits());
+        Assertions.assertEquals(4, planCache.getMisses());
+    }
+
+    @Test
+    void testPathChangeAndInvalidateDropPlans() {
+        Context context = new Context();
+        PlanCache planCache = new PlanCache(new ParserOrchestrator(new Lexer(), context), context);
+
+        planCache.get("ls");
+        context.setVar("PATH", "/bin");
+        planCache.get("ls");
+        planCache.get("ls");
+        planCache.invalidate();
+        planCache.get("ls");
+
+        Assertions.assertEquals(1, planCache.getHits());
+        Assertions.assertEquals(3, planCache.getMisses());
+    }
+
+    @Test
+    void testTrailingAmpersandMakesBackgroundPlan() {
+        Context context = new Context();
+        PlanCache planCache = new PlanCache(new ParserOrchestrator(new Lexer(), context), context);
+
+        CompiledPlan plan = planCache.get("sleep 1 | cat > out &");
+        Assertions.assertTrue(plan.isBackground());
+        Assertions.assertEquals(2, plan.getStages().size());
+        Assertions.assertFalse(planCache.get("echo 2>&1").isBackground());
+        Assertions.assertThrows(IllegalStateException.class, () -> planCache.get("&"));
+        Assertions.assertThrows(IllegalStateException.class, () -> planCache.get("sleep 1 & echo"));
+    }
+
+    @Test
+    void testRegistryChangeInvalidatesPlans() {
+        Context context = new Context();
+        PlanCache planCache = new PlanCache(new ParserOrchestrator(new Lexer(), context), context);
+        CommandRegistry registry = newRegistry(context);
+        registry.addChangeListener(planCache::invalidate);
+
+        planCache.get("echo 1");
+        registry.register("echo", new EchoCommandFactory(new Session(context)));
+        planCache.get("echo 1");
+
+        Assertions.assertEquals(0, planCache.getHits());
+        Assertions.assertEquals(2, planCache.getMisses());
+    }
+
+    private static CommandRegistry newRegistry(Context context) {
+        return new CommandRegistry(new AssignCommandFactory(context), new ExternalCommandFactory(context, new StreamPump()));
+    }
+
+    private static class CountingFactory implements CommandFactory {
+        private final CommandFactory delegate;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        CountingFactory(CommandFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Optional<Command> newCommand(List<Token> args) {
+            calls.incrementAndGet();
+            return delegate.newCommand(args);
+        }
+    }
+}
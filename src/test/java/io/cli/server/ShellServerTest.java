@@ -0,0 +1,172 @@
+package io.cli.server;
+
+import io.cli.executor.pipe.BytePipe;
+import io.cli.metrics.Metrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ShellServerTest {
+    @TempDir
+    Path directory;
+
+    private ShellServer server;
+    private Path socket;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        socket = directory.resolve("cli.sock");
+        server = new ShellServer(socket, new Metrics());
+        server.bind();
+        Thread.ofPlatform().daemon().start(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void testRunsCommandInClientDirectory() throws IOException {
+        Files.writeString(directory.resolve("f.txt"), "from file\n");
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+        int exitCode = ShellClient.run(socket, List.of("-c", "pwd\ncat f.txt\necho $GREETING $1\nexit 3", "name", "arg"),
+                Map.of("GREETING", "hello"), directory.toString(), new ByteArrayInputStream(new byte[0]), stdout, stderr);
+
+        Assertions.assertEquals(3, exitCode);
+        Assertions.assertEquals(directory + "\nfrom file\nhello arg \n", stdout.toString(StandardCharsets.UTF_8));
+        Assertions.assertEquals("", stderr.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testForwardsStdin() throws IOException {
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+        int exitCode = ShellClient.run(socket, List.of(), Map.of(), directory.toString(),
+                new ByteArrayInputStream("x=5\necho $x\nmissing-command-xyz\n".getBytes(StandardCharsets.UTF_8)),
+                stdout, new ByteArrayOutputStream());
+
+        Assertions.assertNotEquals(0, exitCode);
+        Assertions.assertEquals("5 \n", stdout.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @Timeout(10)
+    void testEchoesStdinWhileItIsOpen() throws Exception {
+        BytePipe stdin = new BytePipe(1024);
+        BytePipe stdout = new BytePipe(1024);
+        AtomicInteger exitCode = new AtomicInteger(-1);
+        Thread client = Thread.ofPlatform().start(() -> {
+            try (OutputStream output = stdout.outputStream()) {
+                exitCode.set(ShellClient.run(socket, List.of("-c", "cat"), Map.of(), directory.toString(),
+                        stdin.inputStream(), output, new ByteArrayOutputStream()));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        OutputStream input = stdin.outputStream();
+        InputStream output = stdout.inputStream();
+
+        input.write("hello\n".getBytes(StandardCharsets.UTF_8));
+        input.flush();
+        Assertions.assertEquals("hello\n", new String(output.readNBytes(6), StandardCharsets.UTF_8));
+
+        input.close();
+        client.join();
+        Assertions.assertEquals(0, exitCode.get());
+    }
+
+    @Test
+    void testSessionsDoNotShareVariables() throws IOException {
+        ShellClient.run(socket, List.of("-c", "x=1\nexport y=2"), Map.of(), directory.toString(),
+                new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream(), new ByteArrayOutputStream());
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+        ShellClient.run(socket, List.of("-c", "echo start $x $y end"), Map.of(), directory.toString(),
+                new ByteArrayInputStream(new byte[0]), stdout, new ByteArrayOutputStream());
+
+        // Unset variables are left as written
+        Assertions.assertEquals("start $x $y end \n", stdout.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testCommandsGetClientEnvironmentOnly() throws IOException {
+        // The server runs in this JVM, its PATH is not part of what the client sends
+        Assumptions.assumeTrue(System.getenv("PATH") != null);
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+        int exitCode = ShellClient.run(socket, List.of("-c", "/usr/bin/env"), Map.of("FROM_CLIENT", "1"),
+                directory.toString(), new ByteArrayInputStream(new byte[0]), stdout, new ByteArrayOutputStream());
+
+        Assertions.assertEquals(0, exitCode);
+        List<String> variables = stdout.toString(StandardCharsets.UTF_8).lines().sorted().toList();
+        Assertions.assertEquals(List.of("FROM_CLIENT=1", "PWD=" + directory), variables);
+    }
+
+    @Test
+    void testSocketIsPrivate() throws IOException {
+        Path nested = directory.resolve("run").resolve("cli.sock");
+        try (ShellServer other = new ShellServer(nested, new Metrics())) {
+            other.bind();
+
+            Assertions.assertEquals("rwx------",
+                    PosixFilePermissions.toString(Files.getPosixFilePermissions(nested.getParent())));
+            Assertions.assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(nested)));
+        }
+    }
+
+    @Test
+    void testBindKeepsLiveSocket() throws IOException {
+        try (ShellServer other = new ShellServer(socket, new Metrics())) {
+            Assertions.assertThrows(IOException.class, other::bind);
+        }
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+        ShellClient.run(socket, List.of("-c", "echo up"), Map.of(), directory.toString(),
+                new ByteArrayInputStream(new byte[0]), stdout, new ByteArrayOutputStream());
+
+        Assertions.assertEquals("up \n", stdout.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testBindReplacesStaleSocket() throws IOException {
+        Path stale = directory.resolve("stale.sock");
+        // Closing a channel leaves its socket file behind, as a server that was killed does
+        try (ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.bind(UnixDomainSocketAddress.of(stale));
+        }
+        Assertions.assertTrue(Files.exists(stale));
+
+        try (ShellServer other = new ShellServer(stale, new Metrics())) {
+            Assertions.assertDoesNotThrow(other::bind);
+        }
+    }
+}
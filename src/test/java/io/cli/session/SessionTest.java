@@ -0,0 +1,128 @@
+package io.cli.session;
+
+import io.cli.Main;
+import io.cli.context.Context;
+import io.cli.metrics.Metrics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class SessionTest {
+    private static final int SESSIONS = 1000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @Timeout(60)
+    void testThousandSessionsRunConcurrentlyInOneJvm() throws Exception {
+        Metrics metrics = new Metrics();
+        // Every session waits here on its stdin until all of them are running
+        CountDownLatch allStarted = new CountDownLatch(SESSIONS);
+        int platformThreadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        List<ByteArrayOutputStream> outputs = new ArrayList<>();
+        List<ByteArrayOutputStream> errors = new ArrayList<>();
+        List<Future<Integer>> exitCodes = new ArrayList<>();
+        try (ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < SESSIONS; i++) {
+                Path sessionDirectory = Files.createDirectory(directory.resolve("session-" + i));
+                Files.writeString(sessionDirectory.resolve("id.txt"), "id " + i + "\n");
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                ByteArrayOutputStream error = new ByteArrayOutputStream();
+                outputs.add(output);
+                errors.add(error);
+
+                InputStream stdin = new LatchedInputStream(("payload " + i + "\n").getBytes(StandardCharsets.UTF_8), allStarted);
+                Session session = new Session(new Context(), sessionDirectory, stdin,
+                        new PrintStream(output, true), new PrintStream(error, true));
+                List<String> args = List.of("-c", "x=$1\necho start $x\ncat | cat\ncat id.txt missing.txt\nexit $2",
+                        "session", Integer.toString(i), "7");
+                exitCodes.add(sessions.submit(() -> Main.newShell(session, metrics, false).runArguments(args)));
+            }
+            int platformThreadsDuring = ManagementFactory.getThreadMXBean().getThreadCount();
+
+            for (int i = 0; i < SESSIONS; i++) {
+                Assertions.assertEquals(7, exitCodes.get(i).get());
+            }
+            // Sessions run on virtual threads, a thread per session would show here
+            Assertions.assertTrue(platformThreadsDuring - platformThreadsBefore < 100,
+                    "platform threads grew by " + (platformThreadsDuring - platformThreadsBefore));
+        }
+
+        for (int i = 0; i < SESSIONS; i++) {
+            String output = outputs.get(i).toString(StandardCharsets.UTF_8);
+            Assertions.assertEquals("start " + i + " \npayload " + i + "\nid " + i + "\n", output);
+            Assertions.assertEquals("cat: missing.txt: No such file or directory\n",
+                    errors.get(i).toString(StandardCharsets.UTF_8));
+        }
+        Assertions.assertEquals(0, allStarted.getCount());
+    }
+
+    @Test
+    void testRelativePathsResolveAgainstWorkingDirectory() {
+        Session session = new Session(new Context(), directory, InputStream.nullInputStream(), System.out, System.err);
+
+        Assertions.assertEquals(directory, session.getWorkingDirectory());
+        Assertions.assertEquals(directory.resolve("f.txt"), session.resolvePath("f.txt"));
+        Assertions.assertEquals(Path.of("/tmp"), session.resolvePath("/tmp"));
+        Assertions.assertTrue(session.getContext().isExported(Context.WORKING_DIRECTORY_VARIABLE));
+    }
+
+    // Blocks the first read until the latch opens, then reads the bytes
+    private static class LatchedInputStream extends FilterInputStream {
+        private final CountDownLatch latch;
+        private boolean waited;
+
+        LatchedInputStream(byte[] bytes, CountDownLatch latch) {
+            super(new ByteArrayInputStream(bytes));
+            this.latch = latch;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (!waited) {
+                waited = true;
+                latch.countDown();
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            return super.read(bytes, offset, length);
+        }
+    }
+
+    @Test
+    void testOnlyStandardStreamsAreAttachedToTerminal() {
+        PrintStream out = new PrintStream(new ByteArrayOutputStream());
+        Session standard = new Session(new Context());
+        Session other = new Session(new Context(), InputStream.nullInputStream(), out, out);
+
+        Assertions.assertTrue(standard.isAttachedToTerminal());
+        Assertions.assertTrue(standard.isConsole(System.out));
+        Assertions.assertFalse(standard.isConsole(out));
+        Assertions.assertFalse(other.isAttachedToTerminal());
+        Assertions.assertFalse(other.isConsole(out));
+    }
+}